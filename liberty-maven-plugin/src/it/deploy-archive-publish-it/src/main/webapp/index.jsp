@@ -0,0 +1,10 @@
+<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<html>
+  <head>
+      <title>Maven test publish artifact</title>
+  </head>
+  <body>
+      <h2>Successful publication of war</h2>
+      <p>Maven test war has been successfully installed into the server.</p>
+  </body>
+</html>
\ No newline at end of file
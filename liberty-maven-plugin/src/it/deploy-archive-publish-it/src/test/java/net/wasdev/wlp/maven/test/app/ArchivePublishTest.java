@@ -0,0 +1,69 @@
+package net.wasdev.wlp.maven.test.app;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 
+ * Test that deploy skips an unchanged archive and publishes it again
+ * after undeploy, without leaving temporary files behind
+ * 
+ */
+
+public class ArchivePublishTest {
+
+    private static final String APP_FILE = "deploy-archive-publish-it.war";
+    private static final String UNCHANGED_MESSAGE = "Application " + APP_FILE + " is unchanged, skipping copy";
+
+    private File serverDir = new File("liberty/usr/servers/test");
+
+    @Test
+    public void testUnchangedArchiveSkipped() throws Exception {
+        // skipped by the second deploy only, the deploy after undeploy copies it again
+        Assert.assertEquals("Number of skipped deploys ==>", 1, countLines(new File("../build.log"), UNCHANGED_MESSAGE));
+    }
+
+    @Test
+    public void testArchivePublished() throws Exception {
+        File deployed = new File(serverDir, "dropins/" + APP_FILE);
+        Assert.assertTrue(deployed.getCanonicalFile() + " doesn't exist", deployed.exists());
+        File built = new File("deploy-archive-publish-it-1.0-SNAPSHOT.war");
+        Assert.assertTrue("Deployed archive differs from " + built,
+                Arrays.equals(Files.readAllBytes(built.toPath()), Files.readAllBytes(deployed.toPath())));
+    }
+
+    @Test
+    public void testNoTemporaryFiles() throws Exception {
+        for (File dir : new File[] { serverDir, new File(serverDir, "dropins"), new File(serverDir, "apps") }) {
+            String[] names = dir.list();
+            if (names == null) {
+                continue;
+            }
+            for (String name : names) {
+                Assert.assertFalse("Temporary file " + name + " left in " + dir, name.endsWith(".tmp"));
+            }
+        }
+    }
+
+    private int countLines(File file, String text) throws Exception {
+        int count = 0;
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.contains(text)) {
+                    count++;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return count;
+    }
+}
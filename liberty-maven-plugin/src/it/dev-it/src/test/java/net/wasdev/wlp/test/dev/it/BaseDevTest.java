@@ -157,6 +157,19 @@ public class BaseDevTest {
       }
    }
 
+   protected static void stopDevMode() throws IOException, InterruptedException, FileNotFoundException {
+      stopProcess(true);
+   }
+
+   /**
+    * Start dev mode again on the same project after {@link #stopDevMode()}, with a new log file.
+    */
+   protected static void startDevMode(String params) throws IOException, InterruptedException, FileNotFoundException {
+      assertTrue(logFile.delete());
+      assertTrue(logFile.createNewFile());
+      startProcess(params, true);
+   }
+
    protected static void testModifyJavaFile() throws IOException, InterruptedException {
       // modify a java file
       File srcHelloWorld = new File(tempProj, "src/main/java/com/demo/HelloWorld.java");
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * (c) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package net.wasdev.wlp.test.dev.it;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class FastResumeDevTest extends BaseDevTest {
+
+   private static final String FAST_RESUME = "-DfastResume=true";
+
+   @BeforeClass
+   public static void setUpBeforeClass() throws Exception {
+      setUpBeforeClass(FAST_RESUME);
+   }
+
+   @AfterClass
+   public static void cleanUpAfterClass() throws Exception {
+      BaseDevTest.cleanUpAfterClass();
+   }
+
+   @Test
+   public void resumeTest() throws Exception {
+      // nothing changed, the steps are skipped on the next start
+      stopDevMode();
+      assertTrue(new File(targetDir, "liberty-dev-state.properties").exists());
+      startDevMode(FAST_RESUME);
+      assertFalse(checkLogMessage(2000, "Skipping compile, its inputs have not changed"));
+      assertFalse(checkLogMessage(2000, "Skipping install-feature, its inputs have not changed"));
+
+      // a source change made while dev mode was not running is compiled on the next start
+      stopDevMode();
+      File srcHelloWorld = new File(tempProj, "src/main/java/com/demo/HelloWorld.java");
+      BufferedWriter javaWriter = new BufferedWriter(new FileWriter(srcHelloWorld, true));
+      javaWriter.append(" // changed while dev mode was not running");
+      javaWriter.close();
+      startDevMode(FAST_RESUME);
+      assertTrue(checkLogMessage(2000, "Skipping compile, its inputs have not changed"));
+      assertFalse(checkLogMessage(2000, "Skipping install-feature, its inputs have not changed"));
+
+      // an application that was removed from the server is deployed again
+      stopDevMode();
+      File serverDir = new File(targetDir, "liberty/wlp/usr/servers/defaultServer");
+      for (String dir : new String[] { "apps", "dropins" }) {
+         File[] apps = new File(serverDir, dir).listFiles();
+         if (apps != null) {
+            for (File app : apps) {
+               app.delete();
+            }
+         }
+      }
+      startDevMode(FAST_RESUME);
+      assertTrue(checkLogMessage(2000, "Skipping deploy, its inputs have not changed"));
+
+      // changes are still picked up after resuming
+      testModifyJavaFile();
+   }
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * (c) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package net.wasdev.wlp.test.dev.it;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.shared.utils.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.openliberty.tools.maven.utils.LogTail;
+
+/**
+ * Reads a messages.log that is rolled over the way Liberty rolls over its
+ * logs, by renaming the log and starting a new one with the same header.
+ */
+public class LogTailTest {
+
+   private static final String HEADER = "********************************************************************************\n"
+         + "product = Open Liberty\n"
+         + "********************************************************************************\n";
+
+   private File logDir;
+   private File messagesLog;
+
+   @Before
+   public void setUp() throws Exception {
+      logDir = Files.createTempDirectory("logtail").toFile();
+      messagesLog = new File(logDir, "messages.log");
+   }
+
+   @After
+   public void tearDown() throws Exception {
+      FileUtils.deleteDirectory(logDir);
+   }
+
+   @Test
+   public void bookmarkTest() throws Exception {
+      append(messagesLog, HEADER + "[1] CWWKZ0001I: Application app started.\n");
+      LogTail tail = new LogTail(messagesLog, new SystemStreamLog()).bookmark();
+      assertFalse(tail.waitFor("CWWKZ0001I", 500));
+
+      append(messagesLog, "[2] CWWKZ0003I: Application app updated.\n");
+      assertTrue(tail.waitFor("CWWKZ0003I", 5000));
+   }
+
+   @Test
+   public void renameRolloverTest() throws Exception {
+      append(messagesLog, HEADER + "[1] CWWKF0011I: The server is ready.\n");
+      LogTail tail = new LogTail(messagesLog, new SystemStreamLog()).bookmark();
+
+      // the end of the old log is written before it is renamed
+      append(messagesLog, "[2] CWWKZ0001I: Application app started.\n");
+      assertTrue(messagesLog.renameTo(new File(logDir, "messages_20.01.01_00.00.00.0.log")));
+      append(messagesLog, HEADER + "[3] CWWKZ0003I: Application app updated.\n");
+
+      assertEquals(Collections.emptySet(), tail.waitFor(Arrays.asList("CWWKZ0001I", "CWWKZ0003I"), 5000));
+   }
+
+   @Test
+   public void truncateRolloverTest() throws Exception {
+      append(messagesLog, HEADER + "[1] CWWKF0011I: The server is ready.\n[2] CWWKZ0001I: Application app started.\n");
+      LogTail tail = new LogTail(messagesLog, new SystemStreamLog()).bookmark();
+
+      // copy and truncate, the file is the same but shorter
+      Files.write(messagesLog.toPath(), (HEADER + "[3] CWWKZ0003I: Application app updated.\n").getBytes(StandardCharsets.UTF_8));
+
+      assertTrue(tail.waitFor("CWWKZ0003I", 5000));
+   }
+
+   @Test
+   public void logCreatedAfterBookmarkTest() throws Exception {
+      LogTail tail = new LogTail(messagesLog, new SystemStreamLog()).bookmark();
+      append(messagesLog, HEADER + "[1] CWWKZ0001I: Application app started.\n");
+      assertTrue(tail.waitFor("CWWKZ0001I", 5000));
+   }
+
+   private static void append(File file, String text) throws IOException {
+      Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8);
+      try {
+         writer.write(text);
+      } finally {
+         writer.close();
+      }
+   }
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * (c) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package net.wasdev.wlp.test.dev.it;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Scanner;
+import java.util.regex.Pattern;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ParallelStartupDevTest extends DevTest {
+
+   private static final String[] STEPS = { "compile", "resources", "create", "install-feature", "deploy",
+         "testCompile", "testResources", "start server" };
+
+   @BeforeClass
+   public static void setUpBeforeClass() throws Exception {
+      setUpBeforeClass("-DparallelStartup=true");
+   }
+
+   @Test
+   public void startupSummaryTest() throws Exception {
+      // every step ran, the summary is printed once the server has started
+      assertFalse(checkLogMessage(2000, "Dev mode startup completed"));
+      assertFalse(checkLogMessage(2000, "Time saved by running steps in parallel"));
+      for (String step : STEPS) {
+         // e.g. "  compile                1.2 s  (started at +0.0 s)"
+         Pattern line = Pattern.compile("^\\s+" + Pattern.quote(step) + "\\s+\\d+[.,]\\d s  \\(started at \\+\\d+[.,]\\d s\\)$");
+         assertTrue("No startup summary line for " + step, hasLine(line));
+      }
+   }
+
+   private static boolean hasLine(Pattern pattern) throws Exception {
+      Scanner scanner = new Scanner(logFile);
+      try {
+         while (scanner.hasNextLine()) {
+            if (pattern.matcher(scanner.nextLine()).matches()) {
+               return true;
+            }
+         }
+      } finally {
+         scanner.close();
+      }
+      return false;
+   }
+
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * (c) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package net.wasdev.wlp.test.feature.it;
+
+import static junit.framework.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+
+import org.junit.Test;
+
+public class InstallFeaturesSkippedTest {
+
+    @Test
+    public void testFingerprintExists() throws Exception {
+        File f = new File("liberty-install-feature.fingerprint");
+        assertTrue(f.getCanonicalFile() + " doesn't exist", f.exists());
+    }
+
+    @Test
+    public void testSecondInstallSkipped() throws Exception {
+        // the build log is shared by all modules, only count the messages of this runtime
+        String message = "The features of " + new File("liberty/wlp").getCanonicalPath()
+                + " are already installed, skipping install-feature";
+        assertEquals("Number of skipped install-feature executions", 1, countLines(new File("../../build.log"), message));
+    }
+
+    private int countLines(File file, String text) throws Exception {
+        int count = 0;
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.contains(text)) {
+                    count++;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return count;
+    }
+
+}
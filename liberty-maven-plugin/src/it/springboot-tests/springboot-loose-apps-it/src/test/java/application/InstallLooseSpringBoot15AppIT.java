@@ -0,0 +1,63 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package application;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+public class InstallLooseSpringBoot15AppIT {
+
+    private static final String APP_NAME = "thin-springboot-loose-apps-it-1.0.0.Final-exec.jar";
+    private static final String CONFIG_DROPINS_XML = "target/liberty/wlp/usr/servers/test/configDropins/defaults/install_apps_configuration_1491924271.xml";
+
+    @Test
+    public void testLooseApplicationExistsInAppsDirectory() throws Exception {
+        File f = new File("target/liberty/wlp/usr/servers/test/apps/" + APP_NAME + ".xml");
+        assertTrue(f.getCanonicalFile() + " doesn't exist. Plugin failed to place the loose application at right destination.", f.exists());
+    }
+
+    @Test
+    public void testThinApplicationNotInAppsDirectory() throws Exception {
+        File f = new File("target/liberty/wlp/usr/servers/test/apps/" + APP_NAME);
+        assertFalse(f.getCanonicalFile() + " exists, the loose application must not be deployed next to a thin application.", f.exists());
+    }
+
+    @Test
+    public void testLibIndexCacheExists() throws Exception {
+        File f = new File("target/liberty/wlp/usr/shared/resources/lib.index.cache");
+        assertTrue(f.getCanonicalFile() + " doesn't exist. Plugin failed to place the cache directory at right destination.", f.exists());
+    }
+
+    @Test
+    public void testApplicationConfiguredInConfigDropins() throws Exception {
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new File(CONFIG_DROPINS_XML));
+        XPath xPath = XPathFactory.newInstance().newXPath();
+        NodeList nodes = (NodeList) xPath.compile("/server/springBootApplication").evaluate(doc, XPathConstants.NODESET);
+        assertEquals("Number of <springBootApplication/> element ==>", 1, nodes.getLength());
+        assertEquals("Value of the <springBootApplication/> location ==>", APP_NAME, ((Element) nodes.item(0)).getAttribute("location"));
+    }
+}
@@ -16,9 +16,12 @@
 package io.openliberty.tools.maven;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.maven.RepositoryUtils;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DefaultArtifact;
 import org.apache.maven.artifact.handler.DefaultArtifactHandler;
@@ -100,6 +103,36 @@ public abstract class AbstractLibertySupport extends MojoSupport {
         // Initialize ant helper instance
         ant.setProject(getProject());
     }
+
+    /**
+     * Run this goal from another goal of this plugin that is already
+     * initialized. The state that init() sets up is taken from the other goal
+     * instead of being set up again, the parameters of this goal must already
+     * be configured.
+     * 
+     * @param source
+     *            the initialized goal
+     */
+    public void executeFrom(AbstractLibertySupport source) throws MojoExecutionException, MojoFailureException {
+        setLog(source.getLog());
+        log = source.log;
+        initFrom(source);
+        try {
+            doExecute();
+        } catch (MojoExecutionException | MojoFailureException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Take the state that init() sets up from an initialized goal.
+     */
+    protected void initFrom(AbstractLibertySupport source) {
+        // already set up with the project
+        ant = source.ant;
+    }
     
     protected boolean isReactorMavenProject(Artifact artifact) {
         for (MavenProject p : reactorProjects) {
@@ -300,6 +333,44 @@ public abstract class AbstractLibertySupport extends MojoSupport {
         return artifact;
     }
     
+    /**
+     * Resolve the files of several artifacts with a single request, so that
+     * missing artifacts are downloaded concurrently rather than one request
+     * per artifact. Artifacts that already have a file are skipped.
+     * 
+     * @param artifacts
+     *            the artifacts, their files are set
+     * @throws MojoExecutionException
+     *             if an artifact cannot be resolved
+     */
+    protected void resolveArtifacts(Collection<Artifact> artifacts) throws MojoExecutionException {
+        List<Artifact> unresolved = new ArrayList<Artifact>();
+        List<ArtifactRequest> requests = new ArrayList<ArtifactRequest>();
+        for (Artifact artifact : artifacts) {
+            if (artifact.getFile() == null || !artifact.getFile().exists()) {
+                unresolved.add(artifact);
+                requests.add(new ArtifactRequest().setRepositories(this.repositories)
+                        .setArtifact(RepositoryUtils.toArtifact(artifact)));
+            }
+        }
+        if (requests.isEmpty()) {
+            return;
+        }
+        log.debug("Resolving " + requests.size() + " artifacts");
+
+        List<ArtifactResult> results;
+        try {
+            results = this.repositorySystem.resolveArtifacts(this.repoSession, requests);
+        } catch (ArtifactResolutionException e) {
+            throw new MojoExecutionException("Unable to resolve artifacts: " + e.getMessage(), e);
+        }
+        for (int i = 0; i < results.size(); i++) {
+            Artifact artifact = unresolved.get(i);
+            artifact.setFile(results.get(i).getArtifact().getFile());
+            artifact.setResolved(true);
+        }
+    }
+
     private File resolveArtifactFile(org.eclipse.aether.artifact.Artifact aetherArtifact) throws MojoExecutionException {
         ArtifactRequest req = new ArtifactRequest().setRepositories(this.repositories).setArtifact(aetherArtifact);
         ArtifactResult resolutionResult = null;
@@ -147,6 +147,13 @@ public class BasicSupport extends AbstractLibertySupport {
     @Parameter
     protected ArtifactItem licenseArtifact;
 
+    /**
+     * Index of the feature artifacts that were resolved to install features.
+     * Point it to a shared location to reuse the index between projects.
+     */
+    @Parameter(property = "esaIndexFile", defaultValue = "${project.build.directory}/liberty-esa-index.properties")
+    protected File esaIndexFile;
+
     /**
      * Location of customized configuration directory
      */
@@ -267,6 +274,23 @@ public class BasicSupport extends AbstractLibertySupport {
         }
     }
 
+    @Override
+    protected void initFrom(AbstractLibertySupport source) {
+        super.initFrom(source);
+        if (source instanceof BasicSupport) {
+            // the runtime is already resolved and installed
+            BasicSupport basic = (BasicSupport) source;
+            installDirectory = basic.installDirectory;
+            installType = basic.installType;
+            assemblyArchive = basic.assemblyArchive;
+            serverName = basic.serverName;
+            userDirectory = basic.userDirectory;
+            serverDirectory = basic.serverDirectory;
+            outputDirectory = basic.outputDirectory;
+            defaultOutputDirSet = basic.defaultOutputDirSet;
+        }
+    }
+
     protected void checkServerHomeExists() throws MojoExecutionException {
         if (!installDirectory.exists()) {
             throw new MojoExecutionException(MessageFormat.format(messages.getString("error.server.home.noexist"), installDirectory));
@@ -0,0 +1,117 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven;
+
+import java.io.File;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import io.openliberty.tools.common.plugins.util.InstallFeatureUtil;
+import io.openliberty.tools.common.plugins.util.PluginExecutionException;
+import io.openliberty.tools.common.plugins.util.PluginScenarioException;
+import io.openliberty.tools.maven.utils.EsaIndex;
+
+/**
+ * The InstallFeatureUtil of the install-feature goal and of dev mode. Feature
+ * artifacts are resolved from the Maven repositories of the project and
+ * recorded in the ESA index, see the esaIndexFile parameter, so artifacts that
+ * were resolved before are taken from the index.
+ */
+public class InstallFeatureMojoUtil extends InstallFeatureUtil {
+
+    private final BasicSupport mojo;
+    private final Log log;
+    private final EsaIndex esaIndex;
+
+    /**
+     * @param mojo
+     *            the goal that installs the features
+     * @param from
+     *            the directory or repository to install the features from, or
+     *            null
+     * @param to
+     *            where to install the features, or null
+     * @param pluginListedEsas
+     *            ESA files listed in the plugin configuration
+     */
+    public InstallFeatureMojoUtil(BasicSupport mojo, String from, String to, Set<String> pluginListedEsas)
+            throws PluginScenarioException, PluginExecutionException {
+        super(mojo.installDirectory, from, to, pluginListedEsas);
+        this.mojo = mojo;
+        this.log = mojo.getLog();
+        this.esaIndex = new EsaIndex(mojo.esaIndexFile, log);
+    }
+
+    /**
+     * @return the index of the feature artifacts, call {@link EsaIndex#save()}
+     *         after installing features
+     */
+    public EsaIndex getEsaIndex() {
+        return esaIndex;
+    }
+
+    @Override
+    public void debug(String msg) {
+        log.debug(msg);
+    }
+
+    @Override
+    public void debug(String msg, Throwable e) {
+        log.debug(msg, e);
+    }
+
+    @Override
+    public void debug(Throwable e) {
+        log.debug(e);
+    }
+
+    @Override
+    public void warn(String msg) {
+        log.warn(msg);
+    }
+
+    @Override
+    public void info(String msg) {
+        log.info(msg);
+    }
+
+    @Override
+    public boolean isDebugEnabled() {
+        return log.isDebugEnabled();
+    }
+
+    @Override
+    public File downloadArtifact(String groupId, String artifactId, String type, String version)
+            throws PluginExecutionException {
+        File file = esaIndex.getFile(groupId, artifactId, type, version);
+        if (file != null) {
+            log.debug("Using indexed " + groupId + ":" + artifactId + ":" + type + ":" + version);
+            return file;
+        }
+        try {
+            file = mojo.getArtifact(groupId, artifactId, type, version).getFile();
+        } catch (MojoExecutionException e) {
+            throw new PluginExecutionException(e);
+        }
+        esaIndex.add(groupId, artifactId, type, version, file);
+        if ("esa".equals(type)) {
+            esaIndex.setFeatureVersion(mojo.installDirectory, version);
+        }
+        return file;
+    }
+}
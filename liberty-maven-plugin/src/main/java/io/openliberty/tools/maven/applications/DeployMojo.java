@@ -16,10 +16,16 @@
 package io.openliberty.tools.maven.applications;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.model.Plugin;
@@ -28,6 +34,10 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
 
+import io.openliberty.tools.maven.utils.DigestUtil;
+import io.openliberty.tools.maven.utils.LogTail;
+import io.openliberty.tools.maven.utils.LooseConfigUpdater;
+import io.openliberty.tools.maven.utils.SpringBootThinner;
 import io.openliberty.tools.maven.utils.SpringBootUtil;
 import io.openliberty.tools.common.plugins.config.ApplicationXmlDocument;
 import io.openliberty.tools.common.plugins.config.LooseConfigData;
@@ -49,9 +59,18 @@ public class DeployMojo extends DeployMojoSupport {
         // Delete our generated configDropins XML (a new one will be generated if necessary)
         cleanupPreviousExecution();
 
-        // update target server configuration
-        copyConfigFiles();
-        exportParametersToXml();
+        // update target server configuration, unless neither the configuration nor the server copy of it changed
+        File configFingerprintFile = new File(project.getBuild().getDirectory(), "liberty-deploy-config.fingerprint");
+        if (configFingerprintFile.isFile() && getConfigFingerprint().equals(
+                new String(Files.readAllBytes(configFingerprintFile.toPath()), StandardCharsets.UTF_8))) {
+            log.debug("The server configuration is unchanged, skipping the configuration update");
+        } else {
+            copyConfigFiles();
+            exportParametersToXml();
+            // the written files are part of the fingerprint
+            configFingerprintFile.getParentFile().mkdirs();
+            Files.write(configFingerprintFile.toPath(), getConfigFingerprint().getBytes(StandardCharsets.UTF_8));
+        }
         
         boolean installDependencies = false;
         boolean installProject = false;
@@ -68,7 +87,11 @@ public class DeployMojo extends DeployMojoSupport {
                 installProject = true;
                 break;              
             case "spring-boot-project":
-                installSpringBootApp();
+                if (looseSpringBootApplication) {
+                    installLooseSpringBootApp();
+                } else {
+                    installSpringBootApp();
+                }
                 break;
             default:
                 return;
@@ -80,6 +103,9 @@ public class DeployMojo extends DeployMojoSupport {
         if (installProject) {
             installProject();
         }
+        if (looseApplication) {
+            cleanupCopiedLibs();
+        }
         
         // create application configuration in configDropins if it is not configured
         if (applicationXml.hasChildElements()) {
@@ -97,13 +123,96 @@ public class DeployMojo extends DeployMojoSupport {
             File libIndexCacheTarget = getLibIndexCacheTarget();
             
             validateAppConfig(thinArchiveTarget.getName(), project.getArtifactId(), true);
-            invokeSpringBootUtilCommand(installDirectory, fatArchiveSrc.getCanonicalPath(), thinArchiveTarget.getCanonicalPath(), libIndexCacheTarget.getCanonicalPath());
+            // replace a loose application deployed by dev mode
+            deleteApplication(thinArchiveTarget.getParentFile(), thinArchiveTarget.getName() + ".xml");
+            SpringBootThinner thinner = new SpringBootThinner(
+                    new File(project.getBuild().getDirectory(), "liberty-spring-boot-thin.properties"), log);
+            if (thinner.update(fatArchiveSrc, thinArchiveTarget) == SpringBootThinner.Result.THIN_REQUIRED) {
+                Set<String> cachedLibraries = thinner.getCachedLibraries(libIndexCacheTarget);
+                invokeSpringBootUtilCommand(installDirectory, fatArchiveSrc.getCanonicalPath(), thinArchiveTarget.getCanonicalPath(), libIndexCacheTarget.getCanonicalPath());
+                thinner.thinned(thinArchiveTarget, cachedLibraries);
+                thinner.removeUnreferencedLibraries(libIndexCacheTarget, new File(userDirectory, "servers"),
+                        getConfiguredAppFiles());
+            }
         } else {
             throw new MojoExecutionException(fatArchiveSrc.getCanonicalPath() +" file is not an executable archive. "
                     + "The repackage goal of the spring-boot-maven-plugin must be configured to run first in order to create the required executable archive.");
         }
     }
     
+    // the application locations of server.xml, relative locations are in the apps directory
+    private List<File> getConfiguredAppFiles() {
+        List<File> files = new ArrayList<File>();
+        for (String location : getAppConfigLocationsFromSourceServerXml()) {
+            File file = new File(location);
+            files.add(file.isAbsolute() ? file : new File(new File(serverDirectory, "apps"), location));
+        }
+        return files;
+    }
+
+    /**
+     * Deploy the Spring Boot application as a loose thin application, so that
+     * neither the repackage nor the thin step runs when the code changes.
+     */
+    private void installLooseSpringBootApp() throws Exception {
+        File fatArchiveSrc = SpringBootUtil.getSpringBootUberJARLocation(project, getLog());
+        LooseConfigData config = new LooseConfigData();
+        LooseSpringBootApplication looseApp = new LooseSpringBootApplication(project, config);
+        String startClass = looseApp.getStartClass(fatArchiveSrc);
+        if (startClass == null) {
+            log.warn("Unable to find the main class of the Spring Boot application, configure the mainClass of the "
+                    + "spring-boot-maven-plugin. Deploying the Spring Boot Uber JAR instead.");
+            installSpringBootApp();
+            return;
+        }
+
+        File thinArchiveTarget = getThinArchiveTarget(fatArchiveSrc);
+        File looseConfigFile = new File(thinArchiveTarget.getParentFile(), thinArchiveTarget.getName() + ".xml");
+        File libIndexCacheTarget = getLibIndexCacheTarget();
+        // configured under the name of the thin application, Liberty finds the loose application next to it
+        validateAppConfig(thinArchiveTarget.getName(), project.getArtifactId(), true);
+        log.info(MessageFormat.format(messages.getString("info.install.app"), looseConfigFile.getName()));
+
+        List<Artifact> libraries = new ArrayList<Artifact>();
+        for (Artifact artifact : project.getArtifacts()) {
+            if (("compile".equals(artifact.getScope()) || "runtime".equals(artifact.getScope()))
+                    && "jar".equals(artifact.getType())
+                    // excluded by the repackage goal
+                    && !("org.springframework.boot".equals(artifact.getGroupId())
+                            && "spring-boot-devtools".equals(artifact.getArtifactId()))) {
+                libraries.add(artifact);
+            }
+        }
+        List<Artifact> toResolve = new ArrayList<Artifact>();
+        for (Artifact artifact : libraries) {
+            if (!isReactorMavenProject(artifact)) {
+                toResolve.add(artifact);
+            }
+        }
+        resolveArtifacts(toResolve);
+
+        indexClasses(project);
+        looseApp.addClasses();
+        for (Artifact artifact : libraries) {
+            if (isReactorMavenProject(artifact)) {
+                MavenProject module = getReactorMavenProject(artifact);
+                indexClasses(module);
+                looseApp.addModuleLibrary(module);
+            } else {
+                looseApp.addCachedLibrary(artifact, libIndexCacheTarget, getLibraryStore());
+            }
+        }
+        looseApp.addGeneratedFiles(startClass);
+
+        // replace a thin application deployed from the uber JAR
+        if (thinArchiveTarget.exists()) {
+            thinArchiveTarget.delete();
+        }
+        if (!new LooseConfigUpdater(log).update(config, looseConfigFile)) {
+            log.debug("Loose application " + looseConfigFile.getName() + " is up to date");
+        }
+    }
+
     private File getThinArchiveTarget(File archiveSrc) {
         String appsDirName = getAppsDirectory();
         File archiveTarget = null;
@@ -136,6 +245,9 @@ public class DeployMojo extends DeployMojoSupport {
         Set<Artifact> artifacts = project.getArtifacts();
         log.debug("Number of compile dependencies for " + project.getArtifactId() + " : " + artifacts.size());
         
+        // all dependency applications are verified together at the end
+        deferVerification();
+        List<Artifact> archives = new ArrayList<Artifact>();
         for (Artifact artifact : artifacts) {
             // skip if not an application type supported by Liberty
             if (!isSupportedType(artifact.getType())) {
@@ -151,7 +263,7 @@ public class DeployMojo extends DeployMojoSupport {
                         MavenProject dependProj = getReactorMavenProject(artifact);
                         installLooseApplication(dependProj);
                     } else {
-                        installApp(resolveArtifact(artifact));
+                        archives.add(artifact);
                     }
                 } else {
                     log.warn(MessageFormat.format(messages.getString("error.application.not.supported"),
@@ -159,6 +271,9 @@ public class DeployMojo extends DeployMojoSupport {
                 }
             }
         }
+        // resolved and copied concurrently
+        installApps(archives);
+        verifyDeferredApps();
     }
     
     protected void installProject() throws Exception {
@@ -213,11 +328,68 @@ public class DeployMojo extends DeployMojoSupport {
     }
 
     private void installAndVerifyApp(LooseConfigData config, File looseConfigFile, String applicationName) throws Exception {
-        deleteApplication(new File(serverDirectory, "apps"), looseConfigFile);
-        deleteApplication(new File(serverDirectory, "dropins"), looseConfigFile);
-        config.toXmlFile(looseConfigFile);
+        // remove the application from the other apps directory, and any packaged
+        // application with the same name
+        File appsDir = new File(serverDirectory, "apps");
+        File dropinsDir = new File(serverDirectory, "dropins");
+        File destDir = looseConfigFile.getParentFile();
+        deleteApplication(destDir.equals(appsDir) ? dropinsDir : appsDir, looseConfigFile);
+        deleteApplication(destDir, looseConfigFile.getName().substring(0, looseConfigFile.getName().length() - 4));
+
+        // update the deployed loose application in place so that an unchanged
+        // application is not restarted
+        LogTail logTail = bookmarkMessagesLog();
+        if (!new LooseConfigUpdater(log).update(config, looseConfigFile)) {
+            log.debug("Loose application " + looseConfigFile.getName() + " is up to date");
+            // not restarted, an earlier start message is enough
+            logTail = null;
+        }
         //Only checks if server is running
-        verifyAppStarted(applicationName);
+        verifyAppStarted(applicationName, logTail);
+    }
+
+    /**
+     * Digest of what copyConfigFiles and exportParametersToXml read and write:
+     * the configuration files and parameters, the Liberty configuration
+     * properties, the plugin parameters that are exported, and the files
+     * written to the server directory and the build directory.
+     */
+    private String getConfigFingerprint() throws IOException {
+        DigestUtil digest = new DigestUtil();
+        digest.update(configDirectory).update(serverXmlFile).update(jvmOptionsFile)
+                .update(bootstrapPropertiesFile).update(serverEnvFile);
+        digest.update(String.valueOf(jvmOptions)).update(String.valueOf(bootstrapProperties == null ? null
+                : new TreeMap<String, String>(bootstrapProperties)));
+        digest.update(getLibertyConfigProperties(project.getProperties()))
+                .update(getLibertyConfigProperties(System.getProperties()));
+        digest.update(String.valueOf(useJandex));
+
+        digest.update(String.valueOf(installDirectory)).update(String.valueOf(serverDirectory))
+                .update(String.valueOf(userDirectory)).update(String.valueOf(outputDirectory)).update(serverName);
+        digest.update(getAppsDirectory()).update(String.valueOf(looseApplication))
+                .update(String.valueOf(stripVersion)).update(getDeployPackages()).update(getApplicationFilename());
+        digest.update(project.getPackaging()).update(String.valueOf(project.getActiveProfiles()));
+        for (Artifact artifact : project.getArtifacts()) {
+            digest.update(artifact.getId() + ":" + artifact.getScope());
+        }
+
+        digest.update(new File(serverDirectory, "server.xml")).update(new File(serverDirectory, "jvm.options"))
+                .update(new File(serverDirectory, "bootstrap.properties"))
+                .update(new File(serverDirectory, "server.env"))
+                .update(new File(serverDirectory, PLUGIN_VARIABLE_CONFIG_XML))
+                .update(new File(serverDirectory, PLUGIN_JANDEX_CONFIG_XML));
+        digest.update(new File(project.getBuild().getDirectory(), PLUGIN_CONFIG_XML));
+        return digest.getValue();
+    }
+
+    private String getLibertyConfigProperties(Properties props) {
+        Map<String, String> libertyProps = new TreeMap<String, String>();
+        for (String name : props.stringPropertyNames()) {
+            if (name.startsWith("liberty.")) {
+                libertyProps.put(name, props.getProperty(name));
+            }
+        }
+        return libertyProps.toString();
     }
 
     private void cleanupPreviousExecution() {
@@ -18,7 +18,12 @@ package io.openliberty.tools.maven.applications;
 import java.io.File;
 import java.io.IOException;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.Validate;
@@ -26,15 +31,19 @@ import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
-import org.apache.tools.ant.taskdefs.Copy;
 import org.codehaus.mojo.pluginsupport.util.ArtifactItem;
+import org.codehaus.plexus.util.StringUtils;
 import org.w3c.dom.Element;
 
-import io.openliberty.tools.ant.ServerTask;
 import io.openliberty.tools.ant.SpringBootUtilTask;
 import io.openliberty.tools.maven.server.PluginConfigSupport;
+import io.openliberty.tools.maven.utils.ArchivePublisher;
 import io.openliberty.tools.maven.utils.CommonLogger;
+import io.openliberty.tools.maven.utils.LibraryConsolidator;
+import io.openliberty.tools.maven.utils.LibraryStore;
+import io.openliberty.tools.maven.utils.LogTail;
 import io.openliberty.tools.maven.utils.MavenProjectUtil;
+import io.openliberty.tools.maven.utils.TaskGraph;
 import io.openliberty.tools.common.plugins.config.ApplicationXmlDocument;
 import io.openliberty.tools.common.plugins.config.LooseApplication;
 import io.openliberty.tools.common.plugins.config.LooseConfigData;
@@ -56,10 +65,135 @@ public class DeployMojoSupport extends PluginConfigSupport {
     @Parameter(property = "copyLibsDirectory")
     protected File copyLibsDirectory;
 
+    /**
+     * When deploying loose WAR applications, merge the third-party libraries into
+     * a single jar in the build directory instead of referencing each jar.
+     */
+    @Parameter(property = "consolidateLibs", defaultValue = "false")
+    protected boolean consolidateLibs;
+
+    /**
+     * Deploy a spring-boot-project as a loose thin application that references
+     * the classes directory and the dependency jars, instead of thinning the
+     * uber JAR.
+     */
+    @Parameter(property = "looseSpringBootApplication", defaultValue = "false")
+    protected boolean looseSpringBootApplication;
+
+    private static final String START_OR_UPDATE_APP_MESSAGE_REGEXP = "CWWKZ000[13]I.*";
+
+    // threads that resolve and copy dependency applications
+    private static final int DEPLOY_THREADS = 4;
+
     protected ApplicationXmlDocument applicationXml = new ApplicationXmlDocument();
 
+    // libraries placed in the copyLibsDirectory by this execution
+    private final Set<File> copiedLibs = new HashSet<File>();
+    private LibraryStore libraryStore;
+
+    // applications to verify together, see deferVerification()
+    private List<String> deferredApps;
+    private List<String> deferredUnchangedApps;
+    private LogTail deferredLogTail;
+
     protected void installApp(Artifact artifact) throws Exception {
-    
+        AppArchive app = prepareApp(artifact);
+        // an unchanged application is not restarted, an earlier start message is enough
+        LogTail logTail = app.unchanged ? null : bookmarkMessagesLog();
+        publishApp(app);
+        verifyAppStarted(app.fileName, logTail);
+    }
+
+    /**
+     * Install several application archives. The archives are resolved and
+     * copied by a pool of threads, while validating the configuration and
+     * deleting other copies stays on this thread because it updates shared
+     * documents. The applications are verified together.
+     */
+    protected void installApps(List<Artifact> artifacts) throws Exception {
+        if (artifacts.isEmpty()) {
+            return;
+        }
+        int threads = Math.min(artifacts.size(), DEPLOY_THREADS);
+
+        final Artifact[] resolved = new Artifact[artifacts.size()];
+        TaskGraph resolveTasks = new TaskGraph(log);
+        for (int i = 0; i < artifacts.size(); i++) {
+            final int index = i;
+            final Artifact artifact = artifacts.get(i);
+            resolveTasks.addTask("resolve " + artifact.getId(), new TaskGraph.Step() {
+                @Override
+                public void run() throws Exception {
+                    resolved[index] = resolveArtifact(artifact);
+                }
+            });
+        }
+        resolveTasks.execute(threads);
+
+        List<AppArchive> apps = new ArrayList<AppArchive>();
+        for (Artifact artifact : resolved) {
+            apps.add(prepareApp(artifact));
+        }
+
+        LogTail logTail = bookmarkMessagesLog();
+        TaskGraph publishTasks = new TaskGraph(log);
+        for (final AppArchive app : apps) {
+            publishTasks.addTask("publish " + app.fileName, new TaskGraph.Step() {
+                @Override
+                public void run() throws Exception {
+                    publishApp(app);
+                }
+            });
+        }
+        publishTasks.execute(threads);
+
+        List<String> changed = new ArrayList<String>();
+        List<String> unchanged = new ArrayList<String>();
+        for (AppArchive app : apps) {
+            (app.unchanged ? unchanged : changed).add(app.fileName);
+        }
+        if (deferredApps != null) {
+            deferredApps.addAll(changed);
+            deferredUnchangedApps.addAll(unchanged);
+        } else {
+            verifyAppsStarted(changed, logTail);
+            verifyAppsStarted(unchanged, null);
+        }
+    }
+
+    /**
+     * Collect the applications installed from now on and verify them together
+     * in {@link #verifyDeferredApps()}.
+     */
+    protected void deferVerification() {
+        deferredLogTail = bookmarkMessagesLog();
+        deferredApps = new ArrayList<String>();
+        deferredUnchangedApps = new ArrayList<String>();
+    }
+
+    /**
+     * Verify the applications installed since {@link #deferVerification()}.
+     */
+    protected void verifyDeferredApps() throws MojoExecutionException {
+        List<String> changed = deferredApps;
+        List<String> unchanged = deferredUnchangedApps;
+        deferredApps = null;
+        deferredUnchangedApps = null;
+        if (changed != null) {
+            verifyAppsStarted(changed, deferredLogTail);
+            verifyAppsStarted(unchanged, null);
+        }
+    }
+
+    // an application archive on its way to the server
+    private static class AppArchive {
+        File source;
+        File destFile;
+        String fileName;
+        boolean unchanged;
+    }
+
+    private AppArchive prepareApp(Artifact artifact) throws Exception {
         if (artifact.getFile() == null || artifact.getFile().isDirectory()) {
             String warName = getAppFileName(project);
             File f = new File(project.getBuild().getDirectory() + "/" + warName);
@@ -73,29 +207,47 @@ public class DeployMojoSupport extends PluginConfigSupport {
         File destDir = new File(serverDirectory, getAppsDirectory());
         log.info(MessageFormat.format(messages.getString("info.install.app"), artifact.getFile().getCanonicalPath()));
 
-        Copy copyFile = (Copy) ant.createTask("copy");
-        copyFile.setFile(artifact.getFile());
-        String fileName = artifact.getFile().getName();
+        AppArchive app = new AppArchive();
+        app.source = artifact.getFile();
+        app.fileName = artifact.getFile().getName();
         if (stripVersion) {
-            fileName = stripVersionFromName(fileName, artifact.getBaseVersion());
-            copyFile.setTofile(new File(destDir, fileName));
-        } else {
-            copyFile.setTodir(destDir);
+            app.fileName = stripVersionFromName(app.fileName, artifact.getBaseVersion());
         }
+        app.destFile = new File(destDir, app.fileName);
 
         // validate application configuration if appsDirectory="dropins" or inject
         // webApplication
         // to target server.xml if not found for appsDirectory="apps"
-        validateAppConfig(fileName, artifact.getArtifactId());
+        validateAppConfig(app.fileName, artifact.getArtifactId());
+
+        app.unchanged = new ArchivePublisher(log).isUnchanged(app.source, app.destFile);
+        // the deployed archive itself is replaced by a rename
+        deleteOtherApplication(new File(serverDirectory, "apps"), app.source, app.destFile);
+        deleteOtherApplication(new File(serverDirectory, "dropins"), app.source, app.destFile);
+        if (!app.unchanged) {
+            // application can be expanded if server.xml configure with <applicationManager
+            // autoExpand="true"/>
+            deleteApplication(new File(serverDirectory, "apps/expanded"), app.source);
+        }
+        return app;
+    }
 
-        deleteApplication(new File(serverDirectory, "apps"), artifact.getFile());
-        deleteApplication(new File(serverDirectory, "dropins"), artifact.getFile());
-        // application can be expanded if server.xml configure with <applicationManager
-        // autoExpand="true"/>
-        deleteApplication(new File(serverDirectory, "apps/expanded"), artifact.getFile());
-        copyFile.execute();
+    private void publishApp(AppArchive app) throws IOException {
+        if (app.unchanged) {
+            log.info("Application " + app.fileName + " is unchanged, skipping copy");
+        } else {
+            // the server directory is on the same file system as apps and dropins, but not monitored
+            new ArchivePublisher(log).publish(app.source, app.destFile, serverDirectory);
+        }
+    }
 
-        verifyAppStarted(fileName);
+    // delete the application from a directory, except for the archive that is about to be replaced
+    private void deleteOtherApplication(File parent, File artifactFile, File destFile) throws IOException {
+        if (new File(parent, artifactFile.getName()).equals(destFile)) {
+            deleteApplication(parent, artifactFile.getName() + ".xml");
+        } else {
+            deleteApplication(parent, artifactFile);
+        }
     }
 
     // install war project artifact using loose application configuration file
@@ -107,6 +259,9 @@ public class DeployMojoSupport extends PluginConfigSupport {
                     MessageFormat.format(messages.getString("error.project.not.compile"), proj.getId()));
         }
 
+        resolveLooseApplicationArtifacts(proj, false);
+        indexClasses(proj);
+
         LooseWarApplication looseWar = new LooseWarApplication(proj, config);
         looseWar.addSourceDir(proj);
         looseWar.addOutputDir(looseWar.getDocumentRoot(), new File(proj.getBuild().getOutputDirectory()),
@@ -122,6 +277,8 @@ public class DeployMojoSupport extends PluginConfigSupport {
 
     // install ear project artifact using loose application configuration file
     protected void installLooseConfigEar(MavenProject proj, LooseConfigData config) throws Exception {
+        resolveLooseApplicationArtifacts(proj, true);
+
         LooseEarApplication looseEar = new LooseEarApplication(proj, config);
         looseEar.addSourceDir();
         looseEar.addApplicationXmlFile();
@@ -139,17 +296,20 @@ public class DeployMojoSupport extends PluginConfigSupport {
                                         + artifact.getVersion()
                                         + ". Please set the looseApplication configuration parameter to false and try again.");
                     }
-                    looseEar.addModuleFromM2(resolveArtifact(artifact));
+                    looseEar.addModuleFromM2(resolveIfNeeded(artifact));
                 } else {
                     MavenProject dependencyProject = getReactorMavenProject(artifact);
                     switch (artifact.getType()) {
                     case "jar":
+                        indexClasses(dependencyProject);
                         looseEar.addJarModule(dependencyProject);
                         break;
                     case "ejb":
+                        indexClasses(dependencyProject);
                         looseEar.addEjbModule(dependencyProject);
                         break;
                     case "war":
+                        indexClasses(dependencyProject);
                         Element warArchive = looseEar.addWarModule(dependencyProject,
                                 getWarSourceDirectory(dependencyProject));
                         if (looseEar.isEarSkinnyWars()) {
@@ -161,12 +321,13 @@ public class DeployMojoSupport extends PluginConfigSupport {
                         }
                         break;
                     case "rar":
+                        indexClasses(dependencyProject);
                         Element rarArchive = looseEar.addRarModule(dependencyProject);
                         addEmbeddedLib(rarArchive, dependencyProject, looseEar, "/");
                         break;
                     default:
                         // use the artifact from local .m2 repo
-                        looseEar.addModuleFromM2(resolveArtifact(artifact));
+                        looseEar.addModuleFromM2(resolveIfNeeded(artifact));
                         break;
                     }
                 }
@@ -178,6 +339,76 @@ public class DeployMojoSupport extends PluginConfigSupport {
         looseEar.addManifestFile(manifestFile);
     }
 
+    /**
+     * Resolve every library and module from the repository that the loose
+     * application needs in one batch, instead of one request per jar while the
+     * loose configuration is built.
+     */
+    private void resolveLooseApplicationArtifacts(MavenProject proj, boolean ear) throws MojoExecutionException {
+        List<Artifact> artifacts = new ArrayList<Artifact>();
+        for (Artifact artifact : proj.getArtifacts()) {
+            if (!"compile".equals(artifact.getScope()) && !"runtime".equals(artifact.getScope())) {
+                continue;
+            }
+            if (!isReactorMavenProject(artifact)) {
+                if (ear || "jar".equals(artifact.getType())) {
+                    artifacts.add(artifact);
+                }
+            } else if (ear) {
+                switch (artifact.getType()) {
+                case "jar":
+                case "ejb":
+                    break;
+                case "war":
+                case "rar":
+                    // embedded libraries of the module
+                    for (Artifact lib : getReactorMavenProject(artifact).getArtifacts()) {
+                        if (("compile".equals(lib.getScope()) || "runtime".equals(lib.getScope()))
+                                && "jar".equals(lib.getType()) && !isReactorMavenProject(lib)) {
+                            artifacts.add(lib);
+                        }
+                    }
+                    break;
+                default:
+                    artifacts.add(artifact);
+                    break;
+                }
+            }
+        }
+        resolveArtifacts(artifacts);
+    }
+
+    private Artifact resolveIfNeeded(Artifact artifact) throws MojoExecutionException {
+        if (artifact.getFile() != null && artifact.getFile().exists()) {
+            return artifact;
+        }
+        return resolveArtifact(artifact);
+    }
+
+    /**
+     * The store that the copyLibsDirectory is filled from, shared by the
+     * modules of the reactor.
+     */
+    protected LibraryStore getLibraryStore() {
+        if (libraryStore == null) {
+            MavenProject topLevelProject = session.getTopLevelProject() != null ? session.getTopLevelProject() : project;
+            libraryStore = new LibraryStore(new File(topLevelProject.getBuild().getDirectory(), "liberty-lib-store"),
+                    log);
+        }
+        return libraryStore;
+    }
+
+    /**
+     * Remove the libraries that earlier executions for this project placed in
+     * the copyLibsDirectory and that no loose application references now.
+     */
+    protected void cleanupCopiedLibs() throws IOException {
+        if (copyLibsDirectory != null && copyLibsDirectory.isDirectory()) {
+            getLibraryStore().retainOnly(copyLibsDirectory, project.getGroupId() + ":" + project.getArtifactId(),
+                    copiedLibs);
+        }
+    }
+
     private boolean shouldValidateAppStart() throws MojoExecutionException {
         try {
             return new File(serverDirectory.getCanonicalPath()  + "/workarea/.sRunning").exists();
@@ -186,30 +417,83 @@ public class DeployMojoSupport extends PluginConfigSupport {
         }
     }
 
+    /**
+     * @return a tail of the server messages.log that starts at its current end,
+     *         to verify an application update that is about to happen
+     */
+    protected LogTail bookmarkMessagesLog() {
+        return new LogTail(getMessagesLogFile(), log).bookmark();
+    }
+
+    private File getMessagesLogFile() {
+        return new File(new File(outputDirectory, serverName), "logs/messages.log");
+    }
+
     protected void verifyAppStarted(String appFile) throws MojoExecutionException {
-        if (shouldValidateAppStart()) {
-            String appName = appFile.substring(0, appFile.lastIndexOf('.'));
-            if (getAppsDirectory().equals("apps")) {
-                ServerConfigDocument scd = null;
+        verifyAppStarted(appFile, null);
+    }
 
-                File serverXML = new File(serverDirectory, "server.xml");
+    /**
+     * @param appFile
+     * @param logTail
+     *            bookmarked before the application was updated, or null to
+     *            search the whole log
+     */
+    protected void verifyAppStarted(String appFile, LogTail logTail) throws MojoExecutionException {
+        if (deferredApps != null) {
+            (logTail == null ? deferredUnchangedApps : deferredApps).add(appFile);
+            return;
+        }
+        verifyAppsStarted(Collections.singletonList(appFile), logTail);
+    }
 
-                try {
-                    scd = ServerConfigDocument.getInstance(CommonLogger.getInstance(), serverXML, configDirectory,
-                            bootstrapPropertiesFile, bootstrapProperties, serverEnvFile, false);
+    /**
+     * Wait for several applications at once.
+     *
+     * @param appFiles
+     * @param logTail
+     *            bookmarked before the applications were updated, or null to
+     *            search the whole log
+     */
+    protected void verifyAppsStarted(List<String> appFiles, LogTail logTail) throws MojoExecutionException {
+        if (appFiles.isEmpty() || !shouldValidateAppStart()) {
+            return;
+        }
+        ServerConfigDocument scd = null;
+        if (getAppsDirectory().equals("apps")) {
+            File serverXML = new File(serverDirectory, "server.xml");
+
+            try {
+                scd = ServerConfigDocument.getInstance(CommonLogger.getInstance(), serverXML, configDirectory,
+                        bootstrapPropertiesFile, bootstrapProperties, serverEnvFile, false);
+            } catch (Exception e) {
+                log.warn(e.getLocalizedMessage());
+                log.debug(e);
+            }
+        }
 
-                    //appName will be set to a name derived from appFile if no name can be found.
-                    appName = scd.findNameForLocation(appFile);
-                } catch (Exception e) {
-                    log.warn(e.getLocalizedMessage());
-                    log.debug(e);
-                } 
+        Map<String, String> appNames = new LinkedHashMap<String, String>();
+        for (String appFile : appFiles) {
+            String appName = appFile.substring(0, appFile.lastIndexOf('.'));
+            if (scd != null) {
+                //appName will be set to a name derived from appFile if no name can be found.
+                appName = scd.findNameForLocation(appFile);
             }
+            // an application that is updated in place reports CWWKZ0003I instead of CWWKZ0001I
+            appNames.put(START_OR_UPDATE_APP_MESSAGE_REGEXP + appName, appName);
+        }
 
-            ServerTask serverTask = initializeJava();
-            if (serverTask.waitForStringInLog(START_APP_MESSAGE_REGEXP + appName, timeout * 1000, new File(new File(outputDirectory, serverName), "logs/messages.log")) == null) {
-                throw new MojoExecutionException(MessageFormat.format(messages.getString("error.deploy.fail"), appName));
+        if (logTail == null) {
+            logTail = new LogTail(getMessagesLogFile(), log);
+        }
+        Set<String> missing = logTail.waitFor(appNames.keySet(), timeout * 1000);
+        if (!missing.isEmpty()) {
+            List<String> failed = new ArrayList<String>();
+            for (String regex : missing) {
+                failed.add(appNames.get(regex));
             }
+            throw new MojoExecutionException(MessageFormat.format(messages.getString("error.deploy.fail"),
+                    StringUtils.join(failed.iterator(), ", ")));
         }
     }
 
@@ -218,12 +502,47 @@ public class DeployMojoSupport extends PluginConfigSupport {
         Set<Artifact> artifacts = proj.getArtifacts();
         log.debug("Number of compile dependencies for " + proj.getArtifactId() + " : " + artifacts.size());
 
+        List<Artifact> thirdPartyLibs = new ArrayList<Artifact>();
         for (Artifact artifact : artifacts) {
             if (("compile".equals(artifact.getScope()) || "runtime".equals(artifact.getScope()))
                     && "jar".equals(artifact.getType())) {
+                if (consolidateLibs && "/WEB-INF/lib/".equals(dir) && !isReactorMavenProject(artifact)) {
+                    thirdPartyLibs.add(artifact);
+                } else {
+                    addLibrary(parent, looseApp, dir, artifact);
+                }
+            }
+        }
+        if (!thirdPartyLibs.isEmpty()) {
+            addConsolidatedLib(parent, proj, looseApp, dir, thirdPartyLibs);
+        }
+    }
+
+    // reference the third-party libraries of a web module as one merged jar
+    private void addConsolidatedLib(Element parent, MavenProject proj, LooseApplication looseApp, String dir,
+            List<Artifact> artifacts) throws Exception {
+        LibraryConsolidator consolidator = new LibraryConsolidator(
+                new File(proj.getBuild().getDirectory(), "liberty-libs"), useJandex, log);
+        List<Artifact> mergeable = new ArrayList<Artifact>();
+        List<File> jars = new ArrayList<File>();
+        for (Artifact artifact : artifacts) {
+            File jar = resolveIfNeeded(artifact).getFile();
+            if (consolidator.canConsolidate(jar)) {
+                mergeable.add(artifact);
+                jars.add(jar);
+            } else {
+                addLibrary(parent, looseApp, dir, artifact);
+            }
+        }
+        if (jars.size() < 2) {
+            // nothing to merge
+            for (Artifact artifact : mergeable) {
                 addLibrary(parent, looseApp, dir, artifact);
             }
+            return;
         }
+        File merged = consolidator.consolidate(jars);
+        looseApp.getConfig().addFile(parent, merged, dir + merged.getName());
     }
 
     private void addSkinnyWarLib(Element parent, MavenProject proj, LooseEarApplication looseEar) throws Exception {
@@ -244,13 +563,14 @@ public class DeployMojoSupport extends PluginConfigSupport {
         {
             if (isReactorMavenProject(artifact)) {
                 MavenProject dependProject = getReactorMavenProject(artifact);
+                indexClasses(dependProject);
                 Element archive = looseApp.addArchive(parent, dir + dependProject.getBuild().getFinalName() + ".jar");
                 looseApp.addOutputDir(archive, new File(dependProject.getBuild().getOutputDirectory()), "/");
                 
                 File manifestFile = MavenProjectUtil.getManifestFile(dependProject, "maven-jar-plugin");
                 looseApp.addManifestFileWithParent(archive, manifestFile);
             } else {
-                resolveArtifact(artifact);
+                resolveIfNeeded(artifact);
                 if(copyLibsDirectory != null) {
                     if(!copyLibsDirectory.exists()) {
                         copyLibsDirectory.mkdirs();
@@ -259,7 +579,10 @@ public class DeployMojoSupport extends PluginConfigSupport {
                         throw new MojoExecutionException("copyLibsDirectory must be a directory");
                     }
                     else {
-                        looseApp.getConfig().addFile(parent, artifact.getFile(), dir + artifact.getFile().getName(), copyLibsDirectory);
+                        File copy = new File(copyLibsDirectory, artifact.getFile().getName());
+                        getLibraryStore().place(artifact.getFile(), copy);
+                        copiedLibs.add(copy);
+                        looseApp.getConfig().addFile(parent, copy, dir + artifact.getFile().getName());
                     }
                 }
                 else {
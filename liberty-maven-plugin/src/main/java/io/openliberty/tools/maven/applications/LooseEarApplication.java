@@ -1,6 +1,9 @@
 package io.openliberty.tools.maven.applications;
 
 import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.maven.artifact.Artifact;
@@ -16,9 +19,45 @@ public class LooseEarApplication extends LooseApplication {
 
     protected final MavenProject project;
 
+    // maven-ear-plugin configuration, read once
+    private final String fileNameMapping;
+    private final String defaultLibBundleDir;
+    private final boolean skinnyWars;
+    // module configurations by groupId:artifactId
+    private final Map<String, Xpp3Dom> modules = new HashMap<String, Xpp3Dom>();
+    // jar dependencies of the ear by groupId:artifactId:version
+    private final Set<String> earDependencies = new HashSet<String>();
+
     public LooseEarApplication(MavenProject project, LooseConfigData config) {
         super(project.getBuild().getDirectory(), config);
         this.project = project;
+
+        // valid values are: standard, no-version, no-version-for-ejb, full
+        String mapping = MavenProjectUtil.getPluginConfiguration(project, "org.apache.maven.plugins",
+                "maven-ear-plugin", "fileNameMapping");
+        fileNameMapping = mapping == null || mapping.isEmpty() ? "standard" : mapping;
+        defaultLibBundleDir = MavenProjectUtil.getPluginConfiguration(project, "org.apache.maven.plugins",
+                "maven-ear-plugin", "defaultLibBundleDir");
+        skinnyWars = "true".equals(MavenProjectUtil.getPluginConfiguration(project, "org.apache.maven.plugins",
+                "maven-ear-plugin", "skinnyWars"));
+
+        Xpp3Dom dom = project.getGoalConfiguration("org.apache.maven.plugins", "maven-ear-plugin", null, null);
+        if (dom != null && dom.getChild("modules") != null) {
+            for (Xpp3Dom module : dom.getChild("modules").getChildren()) {
+                String key = getConfigValue(module.getChild("groupId")) + ":"
+                        + getConfigValue(module.getChild("artifactId"));
+                // the first matching module wins
+                if (!modules.containsKey(key)) {
+                    modules.put(key, module);
+                }
+            }
+        }
+
+        for (Artifact dep : project.getArtifacts()) {
+            if ("jar".equals(dep.getType())) {
+                earDependencies.add(dep.getGroupId() + ":" + dep.getArtifactId() + ":" + dep.getVersion());
+            }
+        }
     }
 
     public void addSourceDir() throws Exception {
@@ -119,52 +158,41 @@ public class LooseEarApplication extends LooseApplication {
         if (("jar".equals(type) || "bundle".equals(type)) && getEarDefaultLibBundleDir() != null) {
             defaultUri = "/" + getEarDefaultLibBundleDir() + defaultUri;
         }
-        Xpp3Dom dom = project.getGoalConfiguration("org.apache.maven.plugins", "maven-ear-plugin", null, null);
-        if (dom != null) {
-            Xpp3Dom val = dom.getChild("modules");
-            if (val != null) {
-                Xpp3Dom[] modules = val.getChildren();
-                if (modules != null) {
-                    for (int i = 0; i < modules.length; i++) {
-                        if (groupId.equals(getConfigValue(modules[i].getChild("groupId")))
-                                && artifactId.equals(getConfigValue(modules[i].getChild("artifactId")))) {
-                            String uri = getConfigValue(modules[i].getChild("uri"));
-                            if (uri != null) {
-                                return uri;
-                            } else {
-                                String bundleDir = getConfigValue(modules[i].getChild("bundleDir"));
-                                String bundleFileName = getConfigValue(modules[i].getChild("bundleFileName"));
-                                if (bundleDir == null) {
-                                    if ("jar".equals(type) && getEarDefaultLibBundleDir() != null) {
-                                        bundleDir = "/" + getEarDefaultLibBundleDir();
-                                    } else {
-                                        bundleDir = "";
-                                    }
-                                } else {
-                                    bundleDir = "/" + bundleDir;
-                                }
-
-                                // remove duplicate forward slashes. At this point, we know bundleDir starts
-                                // with a slash or is empty
-                                if (bundleDir.length() > 1 && bundleDir.charAt(0) == bundleDir.charAt(1)) {
-                                    StringBuilder sb = new StringBuilder(bundleDir);
-                                    do {
-                                        sb.deleteCharAt(0);
-                                    } while (sb.length() > 1 && sb.charAt(0) == sb.charAt(1));
-                                    bundleDir = sb.toString();
-                                    if ("/".equals(bundleDir)) {
-                                        bundleDir = "";
-                                    }
-                                }
-                                if (bundleFileName != null) {
-                                    return bundleDir + "/" + bundleFileName;
-                                } else {
-                                    return bundleDir + "/" + getModuleName(groupId, artifactId, version, type);
-                                }
-                            }
-                        }
+        Xpp3Dom module = modules.get(groupId + ":" + artifactId);
+        if (module != null) {
+            String uri = getConfigValue(module.getChild("uri"));
+            if (uri != null) {
+                return uri;
+            } else {
+                String bundleDir = getConfigValue(module.getChild("bundleDir"));
+                String bundleFileName = getConfigValue(module.getChild("bundleFileName"));
+                if (bundleDir == null) {
+                    if ("jar".equals(type) && getEarDefaultLibBundleDir() != null) {
+                        bundleDir = "/" + getEarDefaultLibBundleDir();
+                    } else {
+                        bundleDir = "";
+                    }
+                } else {
+                    bundleDir = "/" + bundleDir;
+                }
+
+                // remove duplicate forward slashes. At this point, we know bundleDir starts
+                // with a slash or is empty
+                if (bundleDir.length() > 1 && bundleDir.charAt(0) == bundleDir.charAt(1)) {
+                    StringBuilder sb = new StringBuilder(bundleDir);
+                    do {
+                        sb.deleteCharAt(0);
+                    } while (sb.length() > 1 && sb.charAt(0) == sb.charAt(1));
+                    bundleDir = sb.toString();
+                    if ("/".equals(bundleDir)) {
+                        bundleDir = "";
                     }
                 }
+                if (bundleFileName != null) {
+                    return bundleDir + "/" + bundleFileName;
+                } else {
+                    return bundleDir + "/" + getModuleName(groupId, artifactId, version, type);
+                }
             }
         }
         return defaultUri;
@@ -213,28 +241,15 @@ public class LooseEarApplication extends LooseApplication {
     }
 
     public String getEarFileNameMapping() {
-        // valid values are: standard, no-version, no-version-for-ejb, full
-        String fileNameMapping = MavenProjectUtil.getPluginConfiguration(project, "org.apache.maven.plugins",
-                "maven-ear-plugin", "fileNameMapping");
-        if (fileNameMapping == null || fileNameMapping.isEmpty()) {
-            fileNameMapping = "standard";
-        }
         return fileNameMapping;
     }
 
     public String getEarDefaultLibBundleDir() {
-        return MavenProjectUtil.getPluginConfiguration(project, "org.apache.maven.plugins", "maven-ear-plugin",
-                "defaultLibBundleDir");
+        return defaultLibBundleDir;
     }
 
     public Boolean isEarSkinnyWars() {
-        String skinnyWars = MavenProjectUtil.getPluginConfiguration(project, "org.apache.maven.plugins",
-                "maven-ear-plugin", "skinnyWars");
-        if (skinnyWars != null && "true".equals(skinnyWars)) {
-            return true;
-        } else {
-            return false;
-        }
+        return skinnyWars;
     }
 
     public void addWarManifestFile(Element parent, MavenProject proj) throws Exception {
@@ -250,17 +265,9 @@ public class LooseEarApplication extends LooseApplication {
     }
 
     public boolean isEarDependency(Artifact artifact) {
-        // get all ear project compile dependencies
-        Set<Artifact> deps = project.getArtifacts();
-        for (Artifact dep : deps) {
-            if (("compile".equals(artifact.getScope()) || "runtime".equals(artifact.getScope()))
-                    && "jar".equals(dep.getType()) && artifact.getGroupId().equals(dep.getGroupId())
-                    && artifact.getArtifactId().equals(dep.getArtifactId())
-                    && artifact.getVersion().equals(dep.getVersion())) {
-                return true;
-            }
-        }
-        return false;
+        return ("compile".equals(artifact.getScope()) || "runtime".equals(artifact.getScope()))
+                && earDependencies.contains(artifact.getGroupId() + ":" + artifact.getArtifactId() + ":"
+                        + artifact.getVersion());
     }
     
 }
@@ -0,0 +1,172 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven.applications;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarFile;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.project.MavenProject;
+import org.w3c.dom.Element;
+
+import io.openliberty.tools.maven.utils.DigestUtil;
+import io.openliberty.tools.maven.utils.LibraryStore;
+import io.openliberty.tools.maven.utils.MavenProjectUtil;
+import io.openliberty.tools.maven.utils.SpringBootThinner;
+import io.openliberty.tools.common.plugins.config.LooseApplication;
+import io.openliberty.tools.common.plugins.config.LooseConfigData;
+
+/**
+ * A Spring Boot application in the layout of a thin application, without
+ * building the uber JAR: the classes come from the output directory, the
+ * libraries are placed in the shared lib.index.cache and listed in a generated
+ * META-INF/spring.lib.index, and the manifest is generated.
+ */
+public class LooseSpringBootApplication extends LooseApplication {
+
+    private static final String SPRING_BOOT_APPLICATION = "Lorg/springframework/boot/autoconfigure/SpringBootApplication;";
+
+    protected final MavenProject project;
+    private final File generatedDirectory;
+    private final StringBuilder libIndex = new StringBuilder();
+
+    public LooseSpringBootApplication(MavenProject project, LooseConfigData config) {
+        super(project.getBuild().getDirectory(), config);
+        this.project = project;
+        this.generatedDirectory = new File(project.getBuild().getDirectory(), "liberty-spring-boot");
+    }
+
+    public void addClasses() {
+        config.addDir(new File(project.getBuild().getOutputDirectory()), "/BOOT-INF/classes");
+    }
+
+    /**
+     * Place a library in the shared cache where the thin command would store
+     * it, and list it in the library index.
+     */
+    public void addCachedLibrary(Artifact artifact, File libIndexCache, LibraryStore store) throws IOException {
+        File jar = artifact.getFile();
+        String hash = DigestUtil.getCachedDigest(jar);
+        File target = new File(new File(new File(libIndexCache, hash.substring(0, 2)), hash.substring(2)),
+                jar.getName());
+        store.place(jar, target);
+        libIndex.append("/BOOT-INF/lib/").append(jar.getName()).append('=').append(hash).append('\n');
+    }
+
+    /**
+     * Reference a reactor module by its output directory.
+     */
+    public void addModuleLibrary(MavenProject module) {
+        Element archive = config.addArchive("/BOOT-INF/lib/" + module.getBuild().getFinalName() + ".jar");
+        addOutputDir(archive, new File(module.getBuild().getOutputDirectory()), "/");
+    }
+
+    /**
+     * Write the library index and the manifest, and add them to the loose
+     * configuration.
+     */
+    public void addGeneratedFiles(String startClass) throws IOException {
+        File indexFile = new File(generatedDirectory, "spring.lib.index");
+        writeIfChanged(indexFile, libIndex.toString());
+        config.addFile(indexFile, "/" + SpringBootThinner.LIB_INDEX);
+
+        StringBuilder manifest = new StringBuilder();
+        manifest.append("Manifest-Version: 1.0\n");
+        manifest.append("Main-Class: org.springframework.boot.loader.JarLauncher\n");
+        manifest.append("Start-Class: ").append(startClass).append('\n');
+        manifest.append("Spring-Boot-Classes: BOOT-INF/classes/\n");
+        manifest.append("Spring-Boot-Lib: BOOT-INF/lib/\n");
+        manifest.append("Created-By: liberty-maven-plugin\n");
+        File manifestFile = new File(generatedDirectory, "MANIFEST.MF");
+        writeIfChanged(manifestFile, manifest.toString());
+        config.addFile(manifestFile, "/" + JarFile.MANIFEST_NAME);
+    }
+
+    /**
+     * Find the main class: the mainClass of the spring-boot-maven-plugin, the
+     * start-class property, the Start-Class of an uber JAR built earlier, or a
+     * class annotated with @SpringBootApplication.
+     *
+     * @param uberJar
+     *            where the uber JAR would be, it does not need to exist
+     * @return the class name, or null if none was found
+     */
+    public String getStartClass(File uberJar) throws IOException {
+        String startClass = MavenProjectUtil.getPluginConfiguration(project, "org.springframework.boot",
+                "spring-boot-maven-plugin", "mainClass");
+        if (startClass == null || startClass.isEmpty()) {
+            startClass = project.getProperties().getProperty("start-class");
+        }
+        if ((startClass == null || startClass.isEmpty()) && uberJar.isFile()) {
+            JarFile jar = new JarFile(uberJar);
+            try {
+                if (jar.getManifest() != null) {
+                    startClass = jar.getManifest().getMainAttributes().getValue("Start-Class");
+                }
+            } finally {
+                jar.close();
+            }
+        }
+        if (startClass == null || startClass.isEmpty()) {
+            startClass = findAnnotatedClass(new File(project.getBuild().getOutputDirectory()), "");
+        }
+        return startClass == null || startClass.isEmpty() ? null : startClass;
+    }
+
+    private String findAnnotatedClass(File dir, String packagePrefix) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return null;
+        }
+        Arrays.sort(files);
+        List<File> dirs = new ArrayList<File>();
+        for (File file : files) {
+            if (file.isDirectory()) {
+                dirs.add(file);
+            } else if (file.getName().endsWith(".class")) {
+                String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1);
+                if (content.contains(SPRING_BOOT_APPLICATION)) {
+                    String name = file.getName();
+                    return packagePrefix + name.substring(0, name.length() - ".class".length());
+                }
+            }
+        }
+        // the application class is usually in a top level package
+        for (File subdir : dirs) {
+            String found = findAnnotatedClass(subdir, packagePrefix + subdir.getName() + ".");
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    // an unchanged file keeps its time stamp, so Liberty does not restart the application
+    private void writeIfChanged(File file, String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        if (file.isFile() && Arrays.equals(bytes, Files.readAllBytes(file.toPath()))) {
+            return;
+        }
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), bytes);
+    }
+}
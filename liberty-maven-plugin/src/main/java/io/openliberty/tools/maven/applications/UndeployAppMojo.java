@@ -18,6 +18,11 @@ package io.openliberty.tools.maven.applications;
 import java.io.File;
 import java.io.IOException;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.maven.plugins.annotations.Mojo;
@@ -26,10 +31,11 @@ import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.StringUtils;
 
-import io.openliberty.tools.ant.ServerTask;
 import io.openliberty.tools.common.plugins.config.ServerConfigDocument;
 import io.openliberty.tools.maven.utils.CommonLogger;
+import io.openliberty.tools.maven.utils.LogTail;
 
 /**
  * Undeploy application from liberty server. If no parameters have been defined
@@ -42,8 +48,6 @@ public class UndeployAppMojo extends DeployMojoSupport {
     private static final String STOP_APP_MESSAGE_CODE_REG = "CWWKZ0009I.*";
     private static final long APP_STOP_TIMEOUT_DEFAULT = 30 * 1000;
 
-    private ServerConfigDocument scd;
-    
     /*
      * (non-Javadoc)
      * @see org.codehaus.mojo.pluginsupport.MojoSupport#doExecute()
@@ -75,17 +79,21 @@ public class UndeployAppMojo extends DeployMojoSupport {
                 return;
         }
 
+        List<File> appFiles = new ArrayList<File>();
         if (uninstallDependencies) {
-            undeployDependencies();
+            addDependencyApps(appFiles);
         }
         if (uninstallProject) {
-            undeployProject();
+            addProjectApp(appFiles);
         }
+        undeployApps(appFiles);
     }
     
-    private void undeployDependencies() throws MojoExecutionException {
+    private void addDependencyApps(List<File> appFiles) throws MojoExecutionException {
         Set<Artifact> artifacts = project.getArtifacts();
+        File installDir = new File(serverDirectory, getAppsDirectory());
 
+        List<Artifact> archives = new ArrayList<Artifact>();
         for (Artifact artifact : artifacts) {
             // skip if not an application type supported by Liberty
             if (!isSupportedType(artifact.getType())) {
@@ -99,15 +107,9 @@ public class UndeployAppMojo extends DeployMojoSupport {
                 if (isSupportedType(artifact.getType())) {
                     if (looseApplication && isReactorMavenProject(artifact)) {
                         MavenProject dependProj = getReactorMavenProject(artifact);
-                        undeployApp(new File(new File(serverDirectory, getAppsDirectory()), getLooseConfigFileName(dependProj)));
+                        appFiles.add(new File(installDir, getLooseConfigFileName(dependProj)));
                     } else {
-                        Artifact depArtifact = resolveArtifact(artifact);
-                        File depArchive = depArtifact.getFile();
-                        if (stripVersion) {
-                            depArchive = new File(stripVersionFromName(depArtifact.getFile().getName(), depArtifact.getBaseVersion()));
-                        }
-                        File installDir = new File(serverDirectory, getAppsDirectory());
-                        undeployApp(new File(installDir, depArchive.getName()));
+                        archives.add(artifact);
                     }
                 } else {
                     log.warn(MessageFormat.format(messages.getString("error.application.not.supported"),
@@ -115,49 +117,83 @@ public class UndeployAppMojo extends DeployMojoSupport {
                 }
             }
         }
+
+        // one resolution request for all archives
+        resolveArtifacts(archives);
+        for (Artifact artifact : archives) {
+            Artifact depArtifact = artifact.getFile() != null ? artifact : resolveArtifact(artifact);
+            File depArchive = depArtifact.getFile();
+            if (stripVersion) {
+                depArchive = new File(stripVersionFromName(depArtifact.getFile().getName(), depArtifact.getBaseVersion()));
+            }
+            appFiles.add(new File(installDir, depArchive.getName()));
+        }
     }
 
-    private void undeployProject() throws MojoExecutionException {
+    private void addProjectApp(List<File> appFiles) throws MojoExecutionException {
         File installDir = new File(serverDirectory, getAppsDirectory());
         if (looseApplication) {
-            undeployApp(new File(installDir, getLooseConfigFileName(project)));
+            appFiles.add(new File(installDir, getLooseConfigFileName(project)));
         } else {
-            undeployApp(new File(installDir, getAppFileName(project)));
+            appFiles.add(new File(installDir, getAppFileName(project)));
         }
     }
 
     protected void undeployApp(File file) throws MojoExecutionException {
-        String appName = file.getName().substring(0, file.getName().lastIndexOf('.'));
+        undeployApps(Collections.singletonList(file));
+    }
 
+    /**
+     * Delete all applications first and then wait once for all of their stop
+     * messages, so that the applications stop concurrently.
+     */
+    protected void undeployApps(List<File> files) throws MojoExecutionException {
+        if (files.isEmpty()) {
+            return;
+        }
+        ServerConfigDocument scd = null;
         if (getAppsDirectory().equals("apps")) {
-            scd = null;
-
             try {
                 File serverXML = new File(serverDirectory.getCanonicalPath(), "server.xml");
             
                 scd = ServerConfigDocument.getInstance(CommonLogger.getInstance(), serverXML, configDirectory,
                 bootstrapPropertiesFile, bootstrapProperties, serverEnvFile, false);
-
-                //appName will be set to a name derived from file if no name can be found.
-                appName = scd.findNameForLocation(appName);
             } catch (Exception e) {
                 log.warn(e.getLocalizedMessage());
             } 
         }
 
-        try {
-            if (!file.delete()) {
-                throw new MojoExecutionException(file.toString() + " could not be deleted from the server during undeploy.");
-            }    
-        } catch (SecurityException se) {
-            throw new MojoExecutionException(file.toString() + " could not be deleted because access was denied.", se);
+        // stop message expression to application file
+        Map<String, File> stopMessages = new LinkedHashMap<String, File>();
+        for (File file : files) {
+            String appName = file.getName().substring(0, file.getName().lastIndexOf('.'));
+            if (scd != null) {
+                //appName will be set to a name derived from file if no name can be found.
+                appName = scd.findNameForLocation(appName);
+            }
+            stopMessages.put(STOP_APP_MESSAGE_CODE_REG + appName, file);
+        }
+
+        // only a stop message after the delete counts
+        LogTail logTail = new LogTail(new File(serverDirectory, "logs/messages.log"), log).bookmark();
+        for (File file : files) {
+            try {
+                if (!file.delete()) {
+                    throw new MojoExecutionException(file.toString() + " could not be deleted from the server during undeploy.");
+                }    
+            } catch (SecurityException se) {
+                throw new MojoExecutionException(file.toString() + " could not be deleted because access was denied.", se);
+            }
         }
 
-        //check stop message code
-        String stopMessage = STOP_APP_MESSAGE_CODE_REG + appName;
-        ServerTask serverTask = initializeJava();
-        if (serverTask.waitForStringInLog(stopMessage, APP_STOP_TIMEOUT_DEFAULT, new File(serverDirectory, "logs/messages.log")) == null) {
-            throw new MojoExecutionException("CWWKM2022E: Failed to undeploy application " + file.getPath() + ". The Stop application message cannot be found in console.log.");
+        //check stop message codes
+        Set<String> missing = logTail.waitFor(stopMessages.keySet(), APP_STOP_TIMEOUT_DEFAULT);
+        if (!missing.isEmpty()) {
+            List<String> failed = new ArrayList<String>();
+            for (String stopMessage : missing) {
+                failed.add(stopMessages.get(stopMessage).getPath());
+            }
+            throw new MojoExecutionException("CWWKM2022E: Failed to undeploy application " + StringUtils.join(failed.iterator(), ", ") + ". The Stop application message cannot be found in console.log.");
         }
     }
 }
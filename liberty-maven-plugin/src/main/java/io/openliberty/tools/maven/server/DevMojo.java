@@ -17,21 +17,32 @@ package io.openliberty.tools.maven.server;
 
 import static org.twdata.maven.mojoexecutor.MojoExecutor.configuration;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.element;
-import static org.twdata.maven.mojoexecutor.MojoExecutor.executeMojo;
-import static org.twdata.maven.mojoexecutor.MojoExecutor.executionEnvironment;
-import static org.twdata.maven.mojoexecutor.MojoExecutor.goal;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.name;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -50,6 +61,9 @@ import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.ProjectBuilder;
 import org.apache.maven.project.ProjectBuildingException;
 import org.apache.maven.project.ProjectBuildingResult;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.SelectorUtils;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
 import org.eclipse.aether.collection.CollectRequest;
 import org.eclipse.aether.resolution.DependencyRequest;
@@ -57,13 +71,25 @@ import org.eclipse.aether.resolution.DependencyResolutionException;
 import org.eclipse.aether.resolution.DependencyResult;
 import org.twdata.maven.mojoexecutor.MojoExecutor.Element;
 
+import io.openliberty.tools.ant.FeatureManagerTask.Feature;
 import io.openliberty.tools.ant.ServerTask;
 import io.openliberty.tools.common.plugins.util.DevUtil;
 import io.openliberty.tools.common.plugins.util.PluginExecutionException;
 import io.openliberty.tools.common.plugins.util.PluginScenarioException;
 import io.openliberty.tools.common.plugins.util.ServerFeatureUtil;
 import io.openliberty.tools.common.plugins.util.ServerStatusUtil;
+import io.openliberty.tools.maven.InstallFeatureMojoUtil;
+import io.openliberty.tools.maven.server.types.Features;
+import io.openliberty.tools.maven.utils.AdaptiveDebouncer;
+import io.openliberty.tools.maven.utils.DevStateSnapshot;
+import io.openliberty.tools.maven.utils.DevTelemetry;
+import io.openliberty.tools.maven.utils.DigestUtil;
 import io.openliberty.tools.maven.utils.ExecuteMojoUtil;
+import io.openliberty.tools.maven.utils.HotSwapper;
+import io.openliberty.tools.maven.utils.HotkeyInputStream;
+import io.openliberty.tools.maven.utils.ModuleWatcher;
+import io.openliberty.tools.maven.utils.TaskGraph;
+import io.openliberty.tools.maven.utils.TestReportSummary;
 
 /**
  * Start a liberty server in dev mode import to set ResolutionScope for TEST as
@@ -80,6 +106,15 @@ public class DevMojo extends StartDebugMojoSupport {
     private static final String MICROSHED_HTTP_PORT = "microshed_http_port";
     private static final String MICROSHED_HTTPS_PORT = "microshed_https_port";
     private static final String WLP_USER_DIR_PROPERTY_NAME = "wlp.user.dir";
+    // wait in milliseconds for an isolated save when adaptive compile wait is enabled
+    private static final long ISOLATED_SAVE_WAIT = 100;
+    // worker threads for the dev mode startup steps, one for the chain of Maven
+    // goals and one for the work that overlaps with it
+    private static final int STARTUP_THREADS = 2;
+    // keys of the dev mode state snapshot
+    private static final String BUILD_DIGEST_KEY = "build";
+    private static final String FEATURES_KEY = "features";
+    private static final String ARTIFACTS_KEY = "artifacts";
 
     DevMojoUtil util = null;
 
@@ -103,10 +138,85 @@ public class DevMojo extends StartDebugMojoSupport {
 
     /**
      * Time in seconds to wait before processing Java changes and deletions.
+     * With adaptive compile wait enabled, this is the minimum time the source
+     * tree must be quiet after a burst of changes.
      */
     @Parameter(property = "compileWait", defaultValue = "0.5")
     private double compileWait;
 
+    /**
+     * Adapt the wait before processing Java changes to the observed file
+     * events: isolated saves are processed quickly, bursts of changes and git
+     * operations are processed once they have settled.
+     */
+    @Parameter(property = "adaptiveCompileWait", defaultValue = "true")
+    private boolean adaptiveCompileWait;
+
+    /**
+     * Maximum time in seconds to wait for a burst of changes to settle when
+     * adaptive compile wait is enabled.
+     */
+    @Parameter(property = "maxCompileWait", defaultValue = "5")
+    private double maxCompileWait;
+
+    /**
+     * Run the runtime creation and feature installation while the project is
+     * compiled, and compile the tests while the server starts.
+     */
+    @Parameter(property = "parallelStartup", defaultValue = "false")
+    private boolean parallelStartup;
+
+    /**
+     * Save the dev mode state under the build directory on exit and skip the
+     * startup steps whose inputs are unchanged on the next start.
+     */
+    @Parameter(property = "fastResume", defaultValue = "false")
+    private boolean fastResume;
+
+    /**
+     * Record the latency of each stage of a change cycle to a JSON lines file
+     * under the build directory.
+     */
+    @Parameter(property = "recordLatency", defaultValue = "false")
+    private boolean recordLatency;
+
+    /**
+     * Watch the reactor modules that the loose application references, such
+     * as EJB, WAR and library modules, and compile a module when it changes.
+     */
+    @Parameter(property = "watchReactorModules", defaultValue = "true")
+    private boolean watchReactorModules;
+
+    /**
+     * When only method bodies of loaded classes change, replace them in the
+     * running server through the debug port instead of updating the
+     * application. Requires debug to be enabled.
+     */
+    @Parameter(property = "hotSwap", defaultValue = "false")
+    private boolean hotSwap;
+
+    private AdaptiveDebouncer debouncer = null;
+
+    private ModuleWatcher<MavenProject> moduleWatcher = null;
+
+    private ModuleWatcher<Resource> resourceWatcher = null;
+
+    private HotSwapper hotSwapper = null;
+
+    private boolean exited = false;
+
+    private TestReportSummary unitTestSummary = null;
+    private TestReportSummary integrationTestSummary = null;
+    private volatile boolean unitTestReportsPending = false;
+    private volatile boolean integrationTestReportsPending = false;
+
+    private DevTelemetry telemetry = null;
+
+    private DevStateSnapshot snapshot = null;
+
+    // input digests of the startup steps, only computed when resuming
+    private Map<String, String> stepDigests = null;
+
     private int runId = 0;
 
     private ServerTask serverTask = null;
@@ -186,10 +296,14 @@ public class DevMojo extends StartDebugMojoSupport {
                 List<File> resourceDirs) throws IOException {
             super(serverDirectory, sourceDirectory, testSourceDirectory, configDirectory, resourceDirs, hotTests,
                     skipTests, skipUTs, skipITs, project.getArtifactId(), serverStartTimeout, verifyTimeout, verifyTimeout,
-                    ((long) (compileWait * 1000L)), libertyDebug, false, false, polling, pollingInterval);
+                    getCompileWaitMillis(), libertyDebug, false, false, polling, pollingInterval);
 
-            ServerFeature servUtil = getServerFeatureUtil();
-            this.existingFeatures = servUtil.getServerFeatures(serverDirectory);
+            Set<String> features = getSnapshotFeatures();
+            if (features == null) {
+                ServerFeature servUtil = getServerFeatureUtil();
+                features = servUtil.getServerFeatures(serverDirectory);
+            }
+            this.existingFeatures = features != null ? features : new HashSet<String>();
         }
 
         @Override
@@ -451,6 +565,8 @@ public class DevMojo extends StartDebugMojoSupport {
             MavenProject backupProject = project;
             project = build.getProject();
             session.setCurrentProject(project);
+            // plugin versions and configuration may have changed
+            getExecutionPlan().invalidate();
             Plugin libertyPlugin = getLibertyPlugin();
 
             try {
@@ -564,6 +680,7 @@ public class DevMojo extends StartDebugMojoSupport {
                 log.debug(e);
                 project = backupProject;
                 session.setCurrentProject(backupProject);
+                getExecutionPlan().invalidate();
                 return false;
             }
             return true;
@@ -571,52 +688,138 @@ public class DevMojo extends StartDebugMojoSupport {
 
         @Override
         public void checkConfigFile(File configFile, File serverDir) {
-            try {
-                ServerFeature servUtil = getServerFeatureUtil();
-                Set<String> features = servUtil.getServerFeatures(serverDir);
-                if (features != null) {
-                    features.removeAll(existingFeatures);
-                    if (!features.isEmpty()) {
-                        log.info("Configuration features have been added");
-                        Element[] featureElems = new Element[features.size() + 1];
-                        featureElems[0] = element(name("acceptLicense"), "true");
-                        String[] values = features.toArray(new String[features.size()]);
-                        for (int i = 0; i < features.size(); i++) {
-                            featureElems[i+1] = element(name("feature"), values[i]);
+            ServerFeature servUtil = getServerFeatureUtil();
+            Set<String> features = servUtil.getServerFeatures(serverDir);
+            if (features == null) {
+                return;
+            }
+            final Set<String> addedFeatures = new HashSet<String>();
+            synchronized (existingFeatures) {
+                features.removeAll(existingFeatures);
+                // mark the features as existing right away so that a config change made
+                // while they are being installed does not install them again
+                existingFeatures.addAll(features);
+                addedFeatures.addAll(features);
+            }
+            if (addedFeatures.isEmpty()) {
+                return;
+            }
+            log.info("Configuration features have been added");
+
+            final InstallFeatureMojoUtil installUtil = getInstallFeatureUtil();
+            if (installUtil == null) {
+                installFeaturesFromMojo(addedFeatures);
+                return;
+            }
+            // install in the background so dev mode keeps watching files while the
+            // running server waits for the new features
+            getFeatureInstallExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        log.debug("Installing features: " + addedFeatures);
+                        installUtil.installFeatures(true, new ArrayList<String>(addedFeatures));
+                        // touch server.xml so the running server processes the configuration
+                        // again now that the features are installed
+                        File serverXml = new File(serverDirectory, "server.xml");
+                        if (serverXml.exists() && !serverXml.setLastModified(System.currentTimeMillis())) {
+                            log.debug("Unable to update the timestamp of " + serverXml);
                         }
-                        runLibertyMojoInstallFeature(element(name("features"), featureElems));
-                        this.existingFeatures.addAll(features);
+                    } catch (PluginExecutionException e) {
+                        log.error("Failed to install features from configuration file", e);
+                        synchronized (existingFeatures) {
+                            existingFeatures.removeAll(addedFeatures);
+                        }
+                        forgetStep("install-feature");
+                    } finally {
+                        installUtil.getEsaIndex().save();
                     }
                 }
+            });
+        }
+
+        private void installFeaturesFromMojo(Set<String> addedFeatures) {
+            try {
+                Element[] featureElems = new Element[addedFeatures.size() + 1];
+                featureElems[0] = element(name("acceptLicense"), "true");
+                String[] values = addedFeatures.toArray(new String[addedFeatures.size()]);
+                for (int i = 0; i < addedFeatures.size(); i++) {
+                    featureElems[i+1] = element(name("feature"), values[i]);
+                }
+                runLibertyMojoInstallFeature(element(name("features"), featureElems));
             } catch (MojoExecutionException e) {
                 log.error("Failed to install features from configuration file", e);
+                synchronized (existingFeatures) {
+                    existingFeatures.removeAll(addedFeatures);
+                }
+                forgetStep("install-feature");
             }
         }
 
         @Override
-        public boolean compile(File dir) {
+        public boolean compile(final File dir) {
+            final long entered = System.currentTimeMillis();
             try {
-                if (dir.equals(sourceDirectory)) {
-                    runMojo("org.apache.maven.plugins", "maven-compiler-plugin", "compile");
-                    runMojo("org.apache.maven.plugins", "maven-resources-plugin", "resources");
-                }
-                if (dir.equals(testSourceDirectory)) {
-                    runMojo("org.apache.maven.plugins", "maven-compiler-plugin", "testCompile");
-                    runMojo("org.apache.maven.plugins", "maven-resources-plugin", "testResources");
+                if (debouncer != null) {
+                    debouncer.awaitQuiet();
                 }
-                return true;
-            } catch (MojoExecutionException e) {
-                log.error("Unable to compile", e);
+                // on the compile thread, so it does not overlap with a module compile or a resource sync
+                return getCompileExecutor().submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        compileSources(dir, entered);
+                        return true;
+                    }
+                }).get();
+            } catch (ExecutionException e) {
+                log.error("Unable to compile", e.getCause());
+                return false;
+            } catch (InterruptedException e) {
+                log.debug("Interrupted while waiting for the compilation", e);
+                Thread.currentThread().interrupt();
                 return false;
             }
         }
 
+        private void compileSources(File dir, long entered) throws MojoExecutionException, IOException {
+            boolean mainSource = dir.equals(sourceDirectory);
+            if (telemetry != null) {
+                long eventTime = debouncer != null && debouncer.getBurstStart() != 0 ? debouncer.getBurstStart()
+                        : entered;
+                telemetry.startCycle(mainSource ? "source" : "test source", eventTime, hotTests && !skipTests);
+                telemetry.mark(DevTelemetry.DEBOUNCE_DONE);
+            }
+            // resources are synced on their own as they change, see syncResources
+            if (mainSource && hotSwapper != null) {
+                compileWithHotSwap();
+            } else if (mainSource) {
+                runMojo("org.apache.maven.plugins", "maven-compiler-plugin", "compile");
+                markTelemetry(DevTelemetry.COMPILE_DONE);
+                if (telemetry != null) {
+                    telemetry.watchAppUpdate(verifyTimeout * 1000L);
+                }
+            }
+            if (mainSource) {
+                // the changed index is picked up by the same application update
+                indexClasses(project);
+            }
+            if (dir.equals(testSourceDirectory)) {
+                runMojo("org.apache.maven.plugins", "maven-compiler-plugin", "testCompile");
+                markTelemetry(DevTelemetry.COMPILE_DONE);
+            }
+        }
+
         @Override
         public void runUnitTests() throws PluginExecutionException, PluginScenarioException {
             try {
                 runTestMojo("org.apache.maven.plugins", "maven-surefire-plugin", "test");
-                runTestMojo("org.apache.maven.plugins", "maven-surefire-report-plugin", "report-only");
+                printTestSummary(false);
+                if (skipITs) {
+                    markTelemetry(DevTelemetry.TESTS_FINISHED);
+                }
             } catch (MojoExecutionException e) {
+                printTestSummary(false);
+                markTelemetry(DevTelemetry.TESTS_FINISHED);
                 Throwable cause = e.getCause();
                 if (cause != null && cause instanceof MojoFailureException) {
                     throw new PluginScenarioException("Unit tests failed: " + cause.getLocalizedMessage(), e);
@@ -630,9 +833,13 @@ public class DevMojo extends StartDebugMojoSupport {
         public void runIntegrationTests() throws PluginExecutionException, PluginScenarioException {
             try {
                 runTestMojo("org.apache.maven.plugins", "maven-failsafe-plugin", "integration-test");
-                runTestMojo("org.apache.maven.plugins", "maven-surefire-report-plugin", "failsafe-report-only");
+                printTestSummary(true);
                 runTestMojo("org.apache.maven.plugins", "maven-failsafe-plugin", "verify");
+                markTelemetry(DevTelemetry.TESTS_FINISHED);
             } catch (MojoExecutionException e) {
+                // already printed unless integration-test itself failed
+                printTestSummary(true);
+                markTelemetry(DevTelemetry.TESTS_FINISHED);
                 Throwable cause = e.getCause();
                 if (cause != null && cause instanceof MojoFailureException) {
                     throw new PluginScenarioException("Integration tests failed: " + cause.getLocalizedMessage(), e);
@@ -647,6 +854,7 @@ public class DevMojo extends StartDebugMojoSupport {
             try {
                 runLibertyMojoDeploy();
             } catch (MojoExecutionException e) {
+                forgetStep("deploy");
                 throw new PluginExecutionException("liberty:deploy goal failed:" + e.getMessage());
             }
         }
@@ -656,6 +864,814 @@ public class DevMojo extends StartDebugMojoSupport {
         return boostPlugin != null;
     }
 
+    /**
+     * Get the reactor modules that the loose application references, the same
+     * way as the deploy goal builds the loose application: the modules of an
+     * EAR and the library modules embedded in a WAR or RAR.
+     */
+    private Set<MavenProject> getLooseApplicationModules() {
+        Set<MavenProject> modules = new LinkedHashSet<MavenProject>();
+        if ("ear".equals(project.getPackaging())) {
+            for (Artifact artifact : project.getArtifacts()) {
+                if (isCompileOrRuntime(artifact) && isReactorMavenProject(artifact)) {
+                    MavenProject module = getReactorMavenProject(artifact);
+                    switch (artifact.getType()) {
+                    case "jar":
+                    case "ejb":
+                        modules.add(module);
+                        break;
+                    case "war":
+                    case "rar":
+                        modules.add(module);
+                        addReactorLibraries(module, modules);
+                        break;
+                    default:
+                        // packaged from the local repository, nothing to watch
+                        break;
+                    }
+                }
+            }
+        } else {
+            addReactorLibraries(project, modules);
+        }
+        modules.remove(project);
+        return modules;
+    }
+
+    private void addReactorLibraries(MavenProject proj, Set<MavenProject> modules) {
+        for (Artifact artifact : proj.getArtifacts()) {
+            if (isCompileOrRuntime(artifact) && "jar".equals(artifact.getType())
+                    && isReactorMavenProject(artifact)) {
+                modules.add(getReactorMavenProject(artifact));
+            }
+        }
+    }
+
+    private boolean isCompileOrRuntime(Artifact artifact) {
+        return "compile".equals(artifact.getScope()) || "runtime".equals(artifact.getScope());
+    }
+
+    /**
+     * Watch the sources and resources of the reactor modules referenced by the
+     * loose application.
+     */
+    private void startModuleWatcher() throws IOException {
+        moduleWatcher = new ModuleWatcher<MavenProject>((long) (compileWait * 1000L),
+                new ModuleWatcher.Listener<MavenProject>() {
+                    @Override
+                    public void moduleChanged(final MavenProject module, final Set<File> changedFiles,
+                            long firstEventMillis) {
+                        getCompileExecutor().execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    compileModule(module, changedFiles);
+                                } catch (MojoExecutionException e) {
+                                    log.error("Unable to compile module " + module.getArtifactId(), e);
+                                }
+                            }
+                        });
+                    }
+                }, log);
+        for (MavenProject module : getLooseApplicationModules()) {
+            List<File> dirs = new ArrayList<File>();
+            for (String sourceRoot : module.getCompileSourceRoots()) {
+                dirs.add(new File(sourceRoot));
+            }
+            for (Resource resource : module.getResources()) {
+                dirs.add(new File(resource.getDirectory()));
+            }
+            log.debug("Watching reactor module " + module.getId() + ": " + dirs);
+            moduleWatcher.addModule(module, dirs);
+        }
+        if (!moduleWatcher.isEmpty()) {
+            moduleWatcher.start();
+        }
+    }
+
+    /**
+     * Compile a reactor module in place. The loose application references the
+     * output directory of the module, so Liberty picks up the change without
+     * rebuilding the other modules.
+     */
+    private void compileModule(MavenProject module, Set<File> changedFiles) throws MojoExecutionException {
+        log.info("Changes detected in module " + module.getArtifactId());
+        boolean sourceChanged = false;
+        boolean resourceChanged = false;
+        for (File file : changedFiles) {
+            for (String sourceRoot : module.getCompileSourceRoots()) {
+                sourceChanged |= isInDirectory(file, new File(sourceRoot));
+            }
+            for (Resource resource : module.getResources()) {
+                resourceChanged |= isInDirectory(file, new File(resource.getDirectory()));
+            }
+        }
+        MavenSession moduleSession = session.clone();
+        moduleSession.setCurrentProject(module);
+        if (sourceChanged) {
+            runModuleMojo(module, moduleSession, "maven-compiler-plugin", "compile");
+            indexClasses(module);
+        }
+        if (resourceChanged) {
+            runModuleMojo(module, moduleSession, "maven-resources-plugin", "resources");
+        }
+    }
+
+    private boolean isInDirectory(File file, File dir) {
+        // compares whole path elements, src/main/java2 is not in src/main/java
+        return file.getAbsoluteFile().toPath().startsWith(dir.getAbsoluteFile().toPath());
+    }
+
+    /**
+     * Get the resource directories that DevUtil watches. When polling, these
+     * are all the resource directories since the resource watcher cannot poll.
+     * Otherwise the resource watcher copies the existing resource directories,
+     * and DevUtil only watches the default resource directory if it does not
+     * exist yet, so that it is picked up when it is created.
+     */
+    private List<File> getDevUtilResourceDirs() {
+        List<File> resourceDirs = new ArrayList<File>();
+        if (outputDirectory.exists()) {
+            List<Resource> resources = project.getResources();
+            for (Resource resource : resources) {
+                File resourceFile = new File(resource.getDirectory());
+                if (resourceFile.exists()) {
+                    resourceDirs.add(resourceFile);
+                }
+            }
+        }
+        if (resourceDirs.isEmpty()) {
+            File defaultResourceDir = new File(project.getBasedir() + "/src/main/resources");
+            log.debug("No resource directory detected, using default directory: " + defaultResourceDir);
+            resourceDirs.add(defaultResourceDir);
+        }
+        if (!polling) {
+            // the resources that the resource watcher copies with the filtering of the resources goal
+            for (Resource resource : project.getResources()) {
+                File resourceFile = new File(resource.getDirectory());
+                if (resourceFile.isDirectory()) {
+                    resourceDirs.remove(resourceFile);
+                }
+            }
+        }
+        return resourceDirs;
+    }
+
+    /**
+     * Watch the resource and test resource directories of the project so that
+     * changed resources are copied on their own, and Java changes do not copy
+     * any resources.
+     */
+    private void startResourceWatcher() throws IOException {
+        resourceWatcher = new ModuleWatcher<Resource>((long) (compileWait * 1000L),
+                new ModuleWatcher.Listener<Resource>() {
+                    @Override
+                    public void moduleChanged(final Resource resource, final Set<File> changedFiles,
+                            final long firstEventMillis) {
+                        getCompileExecutor().execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    syncResources(resource, changedFiles, firstEventMillis);
+                                } catch (MojoExecutionException | IOException e) {
+                                    log.error("Unable to copy resources from " + resource.getDirectory(), e);
+                                }
+                            }
+                        });
+                    }
+                }, log);
+        for (Resource resource : project.getResources()) {
+            resourceWatcher.addModule(resource, Collections.singletonList(new File(resource.getDirectory())));
+        }
+        for (Resource resource : project.getTestResources()) {
+            resourceWatcher.addModule(resource, Collections.singletonList(new File(resource.getDirectory())));
+        }
+        resourceWatcher.start();
+    }
+
+    /**
+     * Copy the changed files of a resource directory with the copy-resources
+     * goal. The configuration of the resources or testResources goal is used,
+     * so filtering, encoding and the other settings are the same as in a full
+     * build. Deleted files are removed from the output directory.
+     */
+    private void syncResources(Resource resource, Set<File> changedFiles, long firstEventMillis)
+            throws MojoExecutionException, IOException {
+        boolean test = project.getTestResources().contains(resource);
+        File resourceDir = new File(resource.getDirectory());
+        File targetDir = test ? testOutputDirectory : outputDirectory;
+        if (resource.getTargetPath() != null) {
+            File targetPath = new File(resource.getTargetPath());
+            targetDir = targetPath.isAbsolute() ? targetPath : new File(targetDir, resource.getTargetPath());
+        }
+
+        Set<String> copy = new TreeSet<String>();
+        for (File file : changedFiles) {
+            if (file.isDirectory()) {
+                ArrayList<File> files = new ArrayList<File>();
+                listFiles(file, files, null);
+                for (File f : files) {
+                    addIncludedResource(resource, resourceDir, f, copy);
+                }
+            } else if (file.isFile()) {
+                addIncludedResource(resource, resourceDir, file, copy);
+            } else {
+                String relativePath = getRelativePath(resourceDir, file);
+                if (relativePath != null && isIncludedResource(resource, relativePath)) {
+                    File target = new File(targetDir, relativePath);
+                    if (target.isDirectory()) {
+                        FileUtils.deleteDirectory(target);
+                    } else if (target.exists() && !target.delete()) {
+                        log.warn("Unable to delete " + target);
+                    }
+                    log.debug("Deleted resource " + target);
+                }
+            }
+        }
+        if (copy.isEmpty()) {
+            return;
+        }
+
+        if (telemetry != null) {
+            telemetry.startCycle(test ? "test resource" : "resource", firstEventMillis, false);
+        }
+        Plugin plugin = getPlugin("org.apache.maven.plugins", "maven-resources-plugin");
+        Xpp3Dom goalConfig = getExecutionPlan().getPluginGoalConfig(plugin, test ? "testResources" : "resources", project);
+        Xpp3Dom config = new Xpp3Dom("configuration");
+        for (Xpp3Dom child : goalConfig.getChildren()) {
+            if (!"outputDirectory".equals(child.getName()) && !"resources".equals(child.getName())) {
+                config.addChild(child);
+            }
+        }
+        Xpp3Dom outputDir = new Xpp3Dom("outputDirectory");
+        outputDir.setValue(targetDir.getAbsolutePath());
+        config.addChild(outputDir);
+
+        Xpp3Dom resourceConfig = new Xpp3Dom("resource");
+        Xpp3Dom directory = new Xpp3Dom("directory");
+        directory.setValue(resourceDir.getAbsolutePath());
+        resourceConfig.addChild(directory);
+        Xpp3Dom filtering = new Xpp3Dom("filtering");
+        filtering.setValue(String.valueOf(resource.isFiltering()));
+        resourceConfig.addChild(filtering);
+        Xpp3Dom includes = new Xpp3Dom("includes");
+        for (String path : copy) {
+            Xpp3Dom include = new Xpp3Dom("include");
+            include.setValue(path);
+            includes.addChild(include);
+        }
+        resourceConfig.addChild(includes);
+        Xpp3Dom resources = new Xpp3Dom("resources");
+        resources.addChild(resourceConfig);
+        config.addChild(resources);
+
+        log.info("Copying " + copy.size() + " changed resource(s) from " + resourceDir);
+        log.debug("configuration:\n" + config);
+        getExecutionPlan().execute(plugin, "copy-resources", config, project, session);
+        markTelemetry(DevTelemetry.RESOURCES_COPIED);
+        if (telemetry != null && !test) {
+            telemetry.watchAppUpdate(verifyTimeout * 1000L);
+        } else if (telemetry != null) {
+            telemetry.endCycle();
+        }
+    }
+
+    private void addIncludedResource(Resource resource, File resourceDir, File file, Set<String> paths) {
+        String relativePath = getRelativePath(resourceDir, file);
+        if (relativePath != null && isIncludedResource(resource, relativePath)) {
+            paths.add(relativePath);
+        }
+    }
+
+    private String getRelativePath(File dir, File file) {
+        String dirPath = dir.getAbsolutePath() + File.separator;
+        String filePath = file.getAbsolutePath();
+        if (!filePath.startsWith(dirPath)) {
+            return null;
+        }
+        return filePath.substring(dirPath.length()).replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Apply the includes and excludes of the resource, and the default
+     * excludes, in the same way as a full copy of the resource directory.
+     */
+    private boolean isIncludedResource(Resource resource, String relativePath) {
+        for (String exclude : DirectoryScanner.DEFAULTEXCLUDES) {
+            if (SelectorUtils.matchPath(exclude, relativePath)) {
+                return false;
+            }
+        }
+        for (String exclude : resource.getExcludes()) {
+            if (SelectorUtils.matchPath(exclude, relativePath)) {
+                return false;
+            }
+        }
+        if (resource.getIncludes().isEmpty()) {
+            return true;
+        }
+        for (String include : resource.getIncludes()) {
+            if (SelectorUtils.matchPath(include, relativePath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void runModuleMojo(MavenProject module, MavenSession moduleSession, String artifactId, String goal)
+            throws MojoExecutionException {
+        Plugin plugin = module.getPlugin("org.apache.maven.plugins:" + artifactId);
+        if (plugin == null) {
+            plugin = getPlugin("org.apache.maven.plugins", artifactId);
+        }
+        Xpp3Dom config = getExecutionPlan().getPluginGoalConfig(plugin, goal, module);
+        log.info("Running " + artifactId + ":" + goal + " on module " + module.getArtifactId());
+        log.debug("configuration:\n" + config);
+        getExecutionPlan().execute(plugin, goal, config, module, moduleSession);
+    }
+
+    private void startHotSwap() {
+        if (!libertyDebug) {
+            log.warn("Hot swap requires debug to be enabled, classes will be updated by restarting the application.");
+        } else if (!HotSwapper.isSupported()) {
+            log.warn("Hot swap requires the Java Debug Interface, which is not available to Maven. Run Maven with a JDK"
+                    + " to enable hot swap, classes will be updated by restarting the application.");
+        } else {
+            hotSwapper = new HotSwapper("localhost", libertyDebugPort, log);
+        }
+    }
+
+    private File getHotSwapDirectory() {
+        return new File(project.getBuild().getDirectory(), "liberty-hotswap-classes");
+    }
+
+    /**
+     * Compile to a staging directory and compare the class files with the
+     * output directory. If only loaded classes changed and the server accepts
+     * the new bytecode, the classes are hot swapped and the output directory is
+     * written to the output directory with their previous modification time,
+     * so Liberty does not restart the application. Otherwise the changed class
+     * files are copied to the output directory as usual. Class files in the
+     * output directory that the staging compile never produced, e.g. from
+     * other compilers or plugins, are left alone.
+     */
+    private void compileWithHotSwap() throws MojoExecutionException, IOException {
+        File stagingDirectory = getHotSwapDirectory();
+        Set<String> previousPaths = getClassPaths(stagingDirectory);
+        Plugin plugin = getPlugin("org.apache.maven.plugins", "maven-compiler-plugin");
+        Xpp3Dom config = getExecutionPlan().getPluginGoalConfig(plugin, "compile", project);
+        setConfigValue(config, "outputDirectory", stagingDirectory.getAbsolutePath());
+        log.info("Running maven-compiler-plugin:compile");
+        log.debug("configuration:\n" + config);
+        getExecutionPlan().execute(plugin, "compile", config, project, session);
+        markTelemetry(DevTelemetry.COMPILE_DONE);
+
+        Map<String, byte[]> changed = new HashMap<String, byte[]>();
+        boolean structural = false;
+        Set<String> stagedPaths = getClassPaths(stagingDirectory);
+        for (String relativePath : stagedPaths) {
+            File staged = new File(stagingDirectory, relativePath);
+            File current = new File(outputDirectory, relativePath);
+            if (!current.exists()) {
+                structural = true;
+            } else if (!DigestUtil.digest(staged).equals(DigestUtil.digest(current))) {
+                String className = relativePath.substring(0, relativePath.length() - ".class".length())
+                        .replace(File.separatorChar, '.');
+                changed.put(className, Files.readAllBytes(staged.toPath()));
+            }
+        }
+        // classes whose source was deleted or that are no longer generated
+        Set<String> removedPaths = new HashSet<String>(previousPaths);
+        removedPaths.removeAll(stagedPaths);
+        if (!removedPaths.isEmpty()) {
+            structural = true;
+        }
+
+        if (!structural && changed.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        if (!structural && hotSwapper.redefine(changed)) {
+            // a restart of the application or the server loads the same classes
+            for (String className : changed.keySet()) {
+                String relativePath = className.replace('.', File.separatorChar) + ".class";
+                File current = new File(outputDirectory, relativePath);
+                long lastModified = current.lastModified();
+                Files.copy(new File(stagingDirectory, relativePath).toPath(), current.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+                current.setLastModified(lastModified);
+            }
+            log.info("Hot swapped " + changed.size() + " class(es) in " + (System.currentTimeMillis() - start)
+                    + " ms.");
+            return;
+        }
+        log.debug("Hot swap is not possible, updating the application");
+        syncHotSwapDirectory(stagedPaths, removedPaths);
+    }
+
+    /**
+     * @return the paths of the class files under the directory, relative to it
+     */
+    private Set<String> getClassPaths(File dir) {
+        ArrayList<File> classFiles = new ArrayList<File>();
+        listFiles(dir, classFiles, "class");
+        String dirPath = dir.getAbsolutePath();
+        Set<String> paths = new HashSet<String>();
+        for (File classFile : classFiles) {
+            paths.add(classFile.getAbsolutePath().substring(dirPath.length() + 1));
+        }
+        return paths;
+    }
+
+    /**
+     * Copy new and changed class files from the staging directory to the
+     * output directory, and delete the class files that the staging compile
+     * no longer produces.
+     */
+    private void syncHotSwapDirectory(Set<String> stagedPaths, Set<String> removedPaths) throws IOException {
+        File stagingDirectory = getHotSwapDirectory();
+        for (String relativePath : stagedPaths) {
+            File staged = new File(stagingDirectory, relativePath);
+            File current = new File(outputDirectory, relativePath);
+            if (!current.exists() || !DigestUtil.digest(staged).equals(DigestUtil.digest(current))) {
+                current.getParentFile().mkdirs();
+                Files.copy(staged.toPath(), current.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        for (String relativePath : removedPaths) {
+            File current = new File(outputDirectory, relativePath);
+            if (current.exists() && !current.delete()) {
+                log.debug("Unable to delete " + current);
+            }
+        }
+    }
+
+    private void setConfigValue(Xpp3Dom config, String name, String value) {
+        Xpp3Dom child = config.getChild(name);
+        if (child == null) {
+            child = new Xpp3Dom(name);
+            config.addChild(child);
+        }
+        child.setValue(value);
+    }
+
+    private void markTelemetry(String stage) {
+        if (telemetry != null) {
+            telemetry.mark(stage);
+        }
+    }
+
+    /**
+     * Start recording change cycle latencies and add a hotkey to print them.
+     */
+    private void startTelemetry() {
+        File outputFile = new File(project.getBuild().getDirectory(), DevTelemetry.FILE_NAME);
+        File messagesLog = new File(serverDirectory, "logs/messages.log");
+        telemetry = new DevTelemetry(outputFile, messagesLog, log);
+    }
+
+    /**
+     * Add the dev mode hotkeys that are handled by this plugin.
+     */
+    private void startHotkeys() {
+        HotkeyInputStream hotkeys = HotkeyInputStream.install(log);
+        hotkeys.addExitAction(new Runnable() {
+            @Override
+            public void run() {
+                exitDevMode();
+            }
+        });
+        if (telemetry != null) {
+            hotkeys.addHotkey("l", "print the latency of recent changes", new Runnable() {
+                @Override
+                public void run() {
+                    log.info(telemetry.getSummary());
+                }
+            });
+        }
+        if (!skipTests) {
+            hotkeys.addHotkey("r", "generate the HTML test reports", new Runnable() {
+                @Override
+                public void run() {
+                    generateTestReports();
+                }
+            });
+        }
+        hotkeys.printHotkeys();
+    }
+
+    /**
+     * Finish the work of this plugin when dev mode exits, before the server is
+     * stopped. Called for the exit command and when watching files ends. The
+     * HTML test reports of test runs since the last 'r' are generated here
+     * rather than in a shutdown hook, where Maven goals must not run.
+     */
+    private synchronized void exitDevMode() {
+        if (exited) {
+            return;
+        }
+        exited = true;
+        stopWatchers();
+        if (compileExecutor != null) {
+            // lets a running compilation finish before the report goals run
+            compileExecutor.shutdown();
+            try {
+                compileExecutor.awaitTermination(60, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        generateTestReports();
+    }
+
+    private void stopWatchers() {
+        if (debouncer != null) {
+            debouncer.stop();
+        }
+        if (moduleWatcher != null) {
+            moduleWatcher.stop();
+        }
+        if (resourceWatcher != null) {
+            resourceWatcher.stop();
+        }
+    }
+
+    /**
+     * Print the results of the last unit or integration test run from the XML
+     * reports. The HTML reports are only generated on demand.
+     */
+    private void printTestSummary(boolean integration) {
+        if (integration) {
+            integrationTestReportsPending = true;
+            if (integrationTestSummary == null) {
+                integrationTestSummary = new TestReportSummary("Integration tests", log);
+            }
+            integrationTestSummary.print(getReportsDirectory("maven-failsafe-plugin", "integration-test",
+                    "failsafe-reports"));
+        } else {
+            unitTestReportsPending = true;
+            if (unitTestSummary == null) {
+                unitTestSummary = new TestReportSummary("Unit tests", log);
+            }
+            unitTestSummary.print(getReportsDirectory("maven-surefire-plugin", "test", "surefire-reports"));
+        }
+    }
+
+    private File getReportsDirectory(String artifactId, String goal, String defaultDirectory) {
+        Plugin plugin = getPlugin("org.apache.maven.plugins", artifactId);
+        Xpp3Dom config = getExecutionPlan().getPluginGoalConfig(plugin, goal, project);
+        Xpp3Dom reportsDirectory = config.getChild("reportsDirectory");
+        if (reportsDirectory != null && reportsDirectory.getValue() != null) {
+            return new File(reportsDirectory.getValue());
+        }
+        return new File(project.getBuild().getDirectory(), defaultDirectory);
+    }
+
+    /**
+     * Generate the HTML reports of the test runs since the reports were last
+     * generated.
+     */
+    private synchronized void generateTestReports() {
+        try {
+            if (unitTestReportsPending) {
+                unitTestReportsPending = false;
+                runTestMojo("org.apache.maven.plugins", "maven-surefire-report-plugin", "report-only");
+            }
+            if (integrationTestReportsPending) {
+                integrationTestReportsPending = false;
+                runTestMojo("org.apache.maven.plugins", "maven-surefire-report-plugin", "failsafe-report-only");
+            }
+        } catch (MojoExecutionException e) {
+            log.error("Unable to generate the test reports", e);
+        }
+    }
+
+    /**
+     * Add a startup step that is skipped when the previous dev mode session
+     * recorded the same inputs and the outputs of the step are still present.
+     */
+    private void addStartupTask(TaskGraph startup, final String name, final TaskGraph.Step step,
+            String... dependencies) {
+        startup.addTask(name, new TaskGraph.Step() {
+            @Override
+            public void run() throws Exception {
+                if (isStepUpToDate(name)) {
+                    log.info("Skipping " + name + ", its inputs have not changed since the last dev mode session.");
+                } else {
+                    step.run();
+                }
+                // only a step that succeeded is recorded, with the inputs it ran with
+                if (snapshot != null) {
+                    snapshot.recordStep(name, stepDigests.get(name));
+                }
+            }
+        }, dependencies);
+    }
+
+    private boolean isStepUpToDate(String step) throws IOException {
+        if (stepDigests == null || !snapshot.isUnchanged(step, stepDigests.get(step))) {
+            return false;
+        }
+        switch (step) {
+        case "compile":
+            return isCompileUpToDate(sourceDirectory, outputDirectory);
+        case "testCompile":
+            return isCompileUpToDate(testSourceDirectory, testOutputDirectory);
+        case "resources":
+            return outputDirectory.exists();
+        case "testResources":
+            return testOutputDirectory.exists();
+        case "create":
+        case "install-feature":
+            return installDirectory.exists() && serverDirectory.exists();
+        case "deploy":
+            return isApplicationDeployed();
+        default:
+            return serverDirectory.exists();
+        }
+    }
+
+    /**
+     * A step that failed during the session runs again on the next start.
+     */
+    private void forgetStep(String step) {
+        if (snapshot != null) {
+            snapshot.removeStep(step);
+        }
+    }
+
+    /**
+     * The application of the project must still be in the server, it is
+     * removed by the undeploy goal or by cleaning the apps directory.
+     */
+    private boolean isApplicationDeployed() {
+        String finalName = project.getBuild().getFinalName();
+        String artifactId = project.getArtifactId();
+        for (String dir : new String[] { "apps", "dropins", "dropins/spring" }) {
+            String[] names = new File(serverDirectory, dir).list();
+            if (names == null) {
+                continue;
+            }
+            for (String name : names) {
+                // the version is stripped from the name when stripVersion is set
+                if (name.startsWith(finalName + ".") || name.startsWith(artifactId + ".")
+                        || name.startsWith("thin-" + finalName + ".")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A class file that is older than its source means the last compilation
+     * failed, so the step cannot be skipped.
+     */
+    private boolean isCompileUpToDate(File srcDir, File classesDir) {
+        ArrayList<File> javaFiles = new ArrayList<File>();
+        listFiles(srcDir, javaFiles, "java");
+        String srcPath = srcDir.getAbsolutePath();
+        for (File javaFile : javaFiles) {
+            if (javaFile.getName().equals("package-info.java") || javaFile.getName().equals("module-info.java")) {
+                continue;
+            }
+            String relative = javaFile.getAbsolutePath().substring(srcPath.length());
+            File classFile = new File(classesDir, relative.substring(0, relative.length() - ".java".length()) + ".class");
+            if (!classFile.exists() || classFile.lastModified() < javaFile.lastModified()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Digest of the project configuration that every startup step depends on:
+     * the POM and its parents, the project properties and the properties set
+     * on the command line.
+     */
+    private DigestUtil getBuildDigest() throws IOException {
+        DigestUtil digest = new DigestUtil();
+        for (MavenProject p = project; p != null; p = p.getParent()) {
+            digest.update(p.getFile());
+        }
+        digest.update(new TreeMap<Object, Object>(project.getProperties()).toString());
+        digest.update(new TreeMap<Object, Object>(session.getUserProperties()).toString());
+        return digest;
+    }
+
+    private Map<String, String> getStepDigests() throws IOException {
+        Map<String, String> digests = new HashMap<String, String>();
+
+        DigestUtil main = getBuildDigest().update(sourceDirectory);
+        for (Resource resource : project.getResources()) {
+            main.update(new File(resource.getDirectory()));
+        }
+        String mainDigest = main.getValue();
+
+        DigestUtil test = getBuildDigest().update(mainDigest).update(testSourceDirectory);
+        for (Resource resource : project.getTestResources()) {
+            test.update(new File(resource.getDirectory()));
+        }
+        String testDigest = test.getValue();
+
+        String configDigest = getBuildDigest().update(configDirectory).update(serverXmlFile)
+                .update(bootstrapPropertiesFile).update(jvmOptionsFile).update(serverEnvFile).getValue();
+
+        digests.put("compile", mainDigest);
+        digests.put("resources", mainDigest);
+        digests.put("testCompile", testDigest);
+        digests.put("testResources", testDigest);
+        digests.put("create", configDigest);
+        digests.put("install-feature", configDigest);
+        digests.put("deploy", new DigestUtil().update(mainDigest).update(configDigest).getValue());
+        digests.put(BUILD_DIGEST_KEY, getBuildDigest().getValue());
+        return digests;
+    }
+
+    private Set<String> getSnapshotFeatures() {
+        if (stepDigests == null || !snapshot.isUnchanged("install-feature", stepDigests.get("install-feature"))) {
+            return null;
+        }
+        List<String> features = snapshot.getValues(FEATURES_KEY);
+        return features == null ? null : new HashSet<String>(features);
+    }
+
+    private List<String> getSnapshotArtifacts() {
+        if (stepDigests == null || !snapshot.isUnchanged(BUILD_DIGEST_KEY, stepDigests.get(BUILD_DIGEST_KEY))) {
+            return null;
+        }
+        List<String> artifacts = snapshot.getValues(ARTIFACTS_KEY);
+        if (artifacts != null) {
+            for (String artifact : artifacts) {
+                if (!new File(artifact).exists()) {
+                    return null;
+                }
+            }
+        }
+        return artifacts;
+    }
+
+    /**
+     * Save the state of this session when dev mode exits. The steps were
+     * recorded when they succeeded at startup, with the digests of the inputs
+     * they ran with, so a step whose inputs changed during the session runs
+     * again on the next start.
+     */
+    private void addSnapshotShutdownHook() {
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                try {
+                    // the artifacts are those of the POM on exit
+                    snapshot.recordStep(BUILD_DIGEST_KEY, getBuildDigest().getValue());
+                    if (util != null) {
+                        synchronized (util.existingFeatures) {
+                            snapshot.setValues(FEATURES_KEY, util.existingFeatures);
+                        }
+                        snapshot.setValues(ARTIFACTS_KEY, util.getArtifacts());
+                    }
+                    snapshot.save();
+                } catch (IOException e) {
+                    log.debug("Unable to save dev mode state", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Get the wait that DevUtil applies before processing Java changes. With
+     * adaptive compile wait, DevUtil only waits for an isolated save and any
+     * further settling is done by the debouncer.
+     */
+    private long getCompileWaitMillis() {
+        long compileWaitMillis = (long) (compileWait * 1000L);
+        if (adaptiveCompileWait) {
+            return Math.min(ISOLATED_SAVE_WAIT, compileWaitMillis);
+        }
+        return compileWaitMillis;
+    }
+
+    private void startDebouncer() {
+        if (!adaptiveCompileWait) {
+            return;
+        }
+        List<File> dirs = new ArrayList<File>();
+        dirs.add(sourceDirectory);
+        dirs.add(testSourceDirectory);
+        long compileWaitMillis = (long) (compileWait * 1000L);
+        debouncer = new AdaptiveDebouncer(dirs, AdaptiveDebouncer.findGitDirectory(project.getBasedir()),
+                Math.min(ISOLATED_SAVE_WAIT, compileWaitMillis), compileWaitMillis, (long) (maxCompileWait * 1000L),
+                log);
+        try {
+            debouncer.start();
+        } catch (IOException e) {
+            log.warn("Unable to watch source directories for adaptive compile wait, using a fixed compile wait: "
+                    + e.getMessage());
+            log.debug(e);
+            debouncer = null;
+        }
+    }
+
     @Override
     protected void doExecute() throws Exception {
         if (skip) {
@@ -684,11 +1700,6 @@ public class DevMojo extends StartDebugMojoSupport {
         final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
                 new ArrayBlockingQueue<Runnable>(1, true));
 
-        runCompileMojoLogWarning();
-        runMojo("org.apache.maven.plugins", "maven-resources-plugin", "resources");
-        runTestCompileMojoLogWarning();
-        runMojo("org.apache.maven.plugins", "maven-resources-plugin", "testResources");
-        
         sourceDirectory = new File(sourceDirectoryString.trim());
         testSourceDirectory = new File(testSourceDirectoryString.trim());
 
@@ -703,37 +1714,113 @@ public class DevMojo extends StartDebugMojoSupport {
         log.debug("Test Source directory: " + testSourceDirectory);
         log.debug("Test Output directory: " + testOutputDirectory);
 
+        // Run the startup steps as a dependency graph so that independent steps
+        // overlap. The goals of other plugins and the deploy goal work on the
+        // same MavenProject, which is not thread safe, so they form a single
+        // chain. Only the runtime creation, the feature installation and the
+        // server start overlap with them.
+        if (fastResume) {
+            snapshot = DevStateSnapshot.load(new File(project.getBuild().getDirectory()), log);
+            stepDigests = getStepDigests();
+        }
+
+        TaskGraph startup = new TaskGraph(log);
+        addStartupTask(startup, "compile", new TaskGraph.Step() {
+            @Override
+            public void run() throws Exception {
+                runCompileMojoLogWarning();
+            }
+        });
+        addStartupTask(startup, "resources", new TaskGraph.Step() {
+            @Override
+            public void run() throws Exception {
+                runMojo("org.apache.maven.plugins", "maven-resources-plugin", "resources");
+            }
+        }, "compile");
+
+        String deployStep;
         if (isUsingBoost()) {
-            log.info("Running boost:package");
-            runBoostMojo("package");
+            deployStep = "boost:package";
+            startup.addTask(deployStep, new TaskGraph.Step() {
+                @Override
+                public void run() throws Exception {
+                    log.info("Running boost:package");
+                    runBoostMojo("package");
+                }
+            }, "resources");
         } else {
-            runLibertyMojoCreate();
-            runLibertyMojoInstallFeature(null);
-            runLibertyMojoDeploy();
-        }
-        // resource directories
-        List<File> resourceDirs = new ArrayList<File>();
-        if (outputDirectory.exists()) {
-            List<Resource> resources = project.getResources();
-            for (Resource resource : resources) {
-                File resourceFile = new File(resource.getDirectory());
-                if (resourceFile.exists()) {
-                    resourceDirs.add(resourceFile);
+            // the Liberty goals share the plugin's Ant project, run them one
+            // after the other
+            deployStep = "deploy";
+            addStartupTask(startup, "create", new TaskGraph.Step() {
+                @Override
+                public void run() throws Exception {
+                    runLibertyMojoCreate();
                 }
+            });
+            addStartupTask(startup, "install-feature", new TaskGraph.Step() {
+                @Override
+                public void run() throws Exception {
+                    runLibertyMojoInstallFeature(null);
+                }
+            }, "create");
+            addStartupTask(startup, deployStep, new TaskGraph.Step() {
+                @Override
+                public void run() throws Exception {
+                    runLibertyMojoDeploy();
+                }
+            }, "install-feature", "resources");
+        }
+        addStartupTask(startup, "testCompile", new TaskGraph.Step() {
+            @Override
+            public void run() throws Exception {
+                runTestCompileMojoLogWarning();
             }
+        }, deployStep);
+        addStartupTask(startup, "testResources", new TaskGraph.Step() {
+            @Override
+            public void run() throws Exception {
+                runMojo("org.apache.maven.plugins", "maven-resources-plugin", "testResources");
+            }
+        }, "testCompile");
+
+        startup.addTask("start server", new TaskGraph.Step() {
+            @Override
+            public void run() throws Exception {
+                util = new DevMojoUtil(serverDirectory, sourceDirectory, testSourceDirectory, configDirectory,
+                        getDevUtilResourceDirs());
+                util.addShutdownHook(executor);
+                startDebouncer();
+                util.startServer();
+            }
+        }, deployStep);
+
+        startup.execute(parallelStartup ? STARTUP_THREADS : 1);
+        startup.logTimings("Dev mode startup");
+        if (snapshot != null) {
+            addSnapshotShutdownHook();
         }
-        if (resourceDirs.isEmpty()) {
-            File defaultResourceDir = new File(project.getBasedir() + "/src/main/resources");
-            log.debug("No resource directory detected, using default directory: " + defaultResourceDir);
-            resourceDirs.add(defaultResourceDir);
+
+        // collect artifacts canonical paths in order to build classpath
+        List<String> artifactPaths = getSnapshotArtifacts();
+        if (artifactPaths == null) {
+            artifactPaths = util.getArtifacts();
         }
 
-        util = new DevMojoUtil(serverDirectory, sourceDirectory, testSourceDirectory, configDirectory, resourceDirs);
-        util.addShutdownHook(executor);
-        util.startServer();
+        if (hotSwap) {
+            startHotSwap();
+        }
+        if (!polling) {
+            startResourceWatcher();
+        }
+        if (watchReactorModules) {
+            startModuleWatcher();
+        }
 
-        // collect artifacts canonical paths in order to build classpath
-        List<String> artifactPaths = util.getArtifacts();
+        if (recordLatency) {
+            startTelemetry();
+        }
+        startHotkeys();
 
         if (hotTests && testSourceDirectory.exists()) {
             // if hot testing, run tests on startup and then watch for
@@ -759,6 +1846,8 @@ public class DevMojo extends StartDebugMojoSupport {
                 log.info(e.getMessage());
             }
             return; // enter shutdown hook 
+        } finally {
+            exitDevMode();
         }
     }
 
@@ -806,7 +1895,7 @@ public class DevMojo extends StartDebugMojoSupport {
 
     private void runTestMojo(String groupId, String artifactId, String goal) throws MojoExecutionException {
         Plugin plugin = getPlugin(groupId, artifactId);
-        Xpp3Dom config = ExecuteMojoUtil.getPluginGoalConfig(plugin, goal, log);
+        Xpp3Dom config = getExecutionPlan().getPluginGoalConfig(plugin, goal, project);
 
         if (goal.equals("test")) {
             injectTestId(config);
@@ -871,7 +1960,7 @@ public class DevMojo extends StartDebugMojoSupport {
         }
 
         log.debug(groupId + ":" + artifactId + " " + goal + " configuration:\n" + config);
-        executeMojo(plugin, goal(goal), config, executionEnvironment(project, session.clone(), pluginManager));
+        getExecutionPlan().execute(plugin, goal, config, project, session.clone());
     }
 
     /**
@@ -935,8 +2024,7 @@ public class DevMojo extends StartDebugMojoSupport {
         MavenSession boostSession = this.session;
 
         log.debug("plugin version: " + boostPlugin.getVersion());
-        executeMojo(boostPlugin, goal(goal), configuration(),
-                executionEnvironment(boostProject, boostSession, pluginManager));
+        getExecutionPlan().execute(boostPlugin, goal, configuration(), boostProject, boostSession);
 
     }
 
@@ -956,6 +2044,110 @@ public class DevMojo extends StartDebugMojoSupport {
         }
     }
 
+    private InstallFeatureMojoUtil installFeatureUtil;
+    private boolean installFeatureUtilUnavailable = false;
+    private ExecutorService featureInstallExecutor;
+    private ExecutorService compileExecutor;
+
+    /**
+     * Get the InstallFeatureUtil used to install features added to the server
+     * configuration while dev mode is running. The util is created once and kept
+     * for the whole dev mode session, and resolved ESAs are kept in the same ESA
+     * index as the install-feature goal uses.
+     *
+     * @return the util, or null if features have to be installed with
+     *         installUtility through the install-feature goal
+     */
+    private synchronized InstallFeatureMojoUtil getInstallFeatureUtil() {
+        if (installFeatureUtil == null && !installFeatureUtilUnavailable) {
+            Features features = getInstallFeatureConfig();
+            Set<String> pluginListedEsas = new HashSet<String>();
+            for (Feature feature : features.getFeatures()) {
+                if (feature.getFeature().endsWith(".esa")) {
+                    pluginListedEsas.add(feature.getFeature());
+                }
+            }
+            try {
+                installFeatureUtil = new InstallFeatureMojoUtil(this, features.getFrom(), features.getTo(),
+                        pluginListedEsas);
+            } catch (PluginScenarioException e) {
+                log.debug(e.getMessage());
+                log.debug("Installing features from the install-feature goal.");
+                installFeatureUtilUnavailable = true;
+            } catch (PluginExecutionException e) {
+                log.debug(e);
+                installFeatureUtilUnavailable = true;
+            }
+        }
+        return installFeatureUtil;
+    }
+
+    /**
+     * Read the features configuration of the install-feature goal.
+     */
+    private Features getInstallFeatureConfig() {
+        Features features = new Features();
+        Xpp3Dom config = ExecuteMojoUtil.getPluginGoalConfig(getLibertyPlugin(), "install-feature", log);
+        Xpp3Dom featuresConfig = config.getChild("features");
+        if (featuresConfig != null) {
+            for (Xpp3Dom child : featuresConfig.getChildren()) {
+                String value = child.getValue();
+                if (value == null) {
+                    continue;
+                }
+                switch (child.getName()) {
+                case "feature":
+                    features.addFeature(value);
+                    break;
+                case "acceptLicense":
+                    features.setAcceptLicense(Boolean.parseBoolean(value.trim()));
+                    break;
+                case "to":
+                    features.setTo(value.trim());
+                    break;
+                case "from":
+                    features.setFrom(value.trim());
+                    break;
+                default:
+                    break;
+                }
+            }
+        }
+        return features;
+    }
+
+    /**
+     * The thread that runs the Maven goals of source changes, of reactor module
+     * changes and of resource changes, one at a time against the project.
+     */
+    private synchronized ExecutorService getCompileExecutor() {
+        if (compileExecutor == null) {
+            compileExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "liberty-dev-compile");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return compileExecutor;
+    }
+
+    private synchronized ExecutorService getFeatureInstallExecutor() {
+        if (featureInstallExecutor == null) {
+            featureInstallExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "liberty-dev-install-feature");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return featureInstallExecutor;
+    }
+
     private static ServerFeature serverFeatureUtil;
 
     private ServerFeature getServerFeatureUtil() {
@@ -1003,12 +2195,11 @@ public class DevMojo extends StartDebugMojoSupport {
      */
     private void runCompileMojo(String goal) throws MojoExecutionException {
         Plugin plugin = getPlugin("org.apache.maven.plugins", "maven-compiler-plugin");
-        Xpp3Dom config = ExecuteMojoUtil.getPluginGoalConfig(plugin, goal, log);
+        Xpp3Dom config = getExecutionPlan().getPluginGoalConfig(plugin, goal, project);
         config = Xpp3Dom.mergeXpp3Dom(configuration(element(name("failOnError"), "false")), config);
         log.info("Running maven-compiler-plugin:" + goal);
         log.debug("configuration:\n" + config);
-        executeMojo(plugin, goal(goal), config,
-                executionEnvironment(project, session, pluginManager));
+        getExecutionPlan().execute(plugin, goal, config, project, session);
     }
 
     /**
@@ -16,12 +16,22 @@
 package io.openliberty.tools.maven.server;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
@@ -29,7 +39,10 @@ import org.apache.maven.plugins.annotations.Parameter;
 import io.openliberty.tools.ant.InstallFeatureTask;
 import io.openliberty.tools.ant.FeatureManagerTask.Feature;
 import io.openliberty.tools.maven.BasicSupport;
+import io.openliberty.tools.maven.InstallFeatureMojoUtil;
 import io.openliberty.tools.maven.server.types.Features;
+import io.openliberty.tools.maven.utils.DigestUtil;
+import io.openliberty.tools.maven.utils.EsaIndex;
 import io.openliberty.tools.common.plugins.util.InstallFeatureUtil;
 import io.openliberty.tools.common.plugins.util.PluginExecutionException;
 import io.openliberty.tools.common.plugins.util.PluginScenarioException;
@@ -51,51 +64,8 @@ public class InstallFeatureMojo extends BasicSupport {
     
     private boolean noFeaturesSection;
 
-    private class InstallFeatureMojoUtil extends InstallFeatureUtil {
-        public InstallFeatureMojoUtil(Set<String> pluginListedEsas)  throws PluginScenarioException, PluginExecutionException {
-            super(installDirectory, features.getFrom(), features.getTo(), pluginListedEsas);
-        }
-
-        @Override
-        public void debug(String msg) {
-            log.debug(msg);
-        }
-        
-        @Override
-        public void debug(String msg, Throwable e) {
-            log.debug(msg, e);
-        }
-        
-        @Override
-        public void debug(Throwable e) {
-            log.debug(e);
-        }
-        
-        @Override
-        public void warn(String msg) {
-            log.warn(msg);
-        }
+    private static final Pattern INCLUDE_LOCATION = Pattern.compile("<include\\s[^>]*location\\s*=\\s*\"([^\"]+)\"");
 
-        @Override
-        public void info(String msg) {
-            log.info(msg);
-        }
-        
-        @Override
-        public boolean isDebugEnabled() {
-            return log.isDebugEnabled();
-        }
-        
-        @Override
-        public File downloadArtifact(String groupId, String artifactId, String type, String version) throws PluginExecutionException {
-            try {
-                return getArtifact(groupId, artifactId, type, version).getFile();
-            } catch (MojoExecutionException e) {
-                throw new PluginExecutionException(e);
-            }
-        }
-    }
-        
     /*
      * (non-Javadoc)
      * @see org.codehaus.mojo.pluginsupport.MojoSupport#doExecute()
@@ -117,16 +87,30 @@ public class InstallFeatureMojo extends BasicSupport {
         }
 
         checkServerHomeExists();
+
+        // nothing to do when the requested features, the server configuration and the runtime did not change
+        File fingerprintFile = new File(project.getBuild().getDirectory(), "liberty-install-feature.fingerprint");
+        String fingerprint = getFingerprint();
+        if (fingerprintFile.isFile()
+                && fingerprint.equals(new String(Files.readAllBytes(fingerprintFile.toPath()), StandardCharsets.UTF_8))) {
+            log.info("The features of " + installDirectory.getCanonicalPath() + " are already installed, skipping install-feature");
+            return;
+        }
+
         installFeatures();
+
+        // the installed features are part of the fingerprint
+        fingerprintFile.getParentFile().mkdirs();
+        Files.write(fingerprintFile.toPath(), getFingerprint().getBytes(StandardCharsets.UTF_8));
     }
 
     private void installFeatures() throws PluginExecutionException {       
         Set<String> pluginListedFeatures = getPluginListedFeatures(false);
         Set<String> pluginListedEsas = getPluginListedFeatures(true);
         
-        InstallFeatureUtil util;
+        InstallFeatureMojoUtil util;
         try {
-            util = new InstallFeatureMojoUtil(pluginListedEsas);
+            util = new InstallFeatureMojoUtil(this, features.getFrom(), features.getTo(), pluginListedEsas);
         } catch (PluginScenarioException e) {
             log.debug(e.getMessage());
             if (noFeaturesSection) {
@@ -145,9 +129,115 @@ public class InstallFeatureMojo extends BasicSupport {
 
         Set<String> featuresToInstall = InstallFeatureUtil.combineToSet(pluginListedFeatures, dependencyFeatures, serverFeatures);
 
-        util.installFeatures(features.isAcceptLicense(), new ArrayList<String>(featuresToInstall));
+        EsaIndex esaIndex = util.getEsaIndex();
+        prefetchFeatures(esaIndex, featuresToInstall);
+        try {
+            util.installFeatures(features.isAcceptLicense(), new ArrayList<String>(featuresToInstall));
+        } finally {
+            esaIndex.save();
+        }
+    }
+
+    /**
+     * Resolve the ESAs of the dependency closure of the features that are not
+     * in the local repository yet with a single request, so that they are
+     * downloaded concurrently instead of one at a time by the installer. The
+     * closure is computed from the ESA index and the installed features,
+     * nothing is done when a feature is neither installed nor indexed yet.
+     */
+    private void prefetchFeatures(EsaIndex esaIndex, Set<String> featuresToInstall) {
+        String version = esaIndex.getFeatureVersion(installDirectory);
+        if (version == null || featuresToInstall.isEmpty()) {
+            return;
+        }
+        Set<String> installed = esaIndex.getInstalledFeatures(new File(installDirectory, "lib/features"),
+                new File(userDirectory, "extension/lib/features"));
+        List<String> closure = esaIndex.getClosure(featuresToInstall, installed, version);
+        if (closure == null) {
+            return;
+        }
+        List<Artifact> missing = new ArrayList<Artifact>();
+        for (String coordinates : closure) {
+            String[] parts = coordinates.split(":");
+            if (esaIndex.getFile(parts[0], parts[1], parts[2], parts[3]) == null) {
+                missing.add(new DefaultArtifact(parts[0], parts[1], parts[3], Artifact.SCOPE_PROVIDED, parts[2], null,
+                        new DefaultArtifactHandler(parts[2])));
+            }
+        }
+        log.debug("ESA index covers " + closure.size() + " features, " + missing.size() + " to resolve");
+        if (missing.isEmpty()) {
+            return;
+        }
+        try {
+            resolveArtifacts(missing);
+            for (Artifact artifact : missing) {
+                esaIndex.add(artifact.getGroupId(), artifact.getArtifactId(), artifact.getType(),
+                        artifact.getVersion(), artifact.getFile());
+            }
+        } catch (MojoExecutionException e) {
+            // the installer resolves them one at a time
+            log.debug("Unable to resolve the ESAs in advance", e);
+        }
     }
     
+    /**
+     * Digest of everything that decides which features install-feature
+     * installs: the plugin configuration, the ESA dependencies, the server
+     * configuration, the runtime version and the feature manifests that are
+     * installed. The manifests are compared by name, size and modification
+     * time.
+     */
+    private String getFingerprint() throws IOException {
+        DigestUtil digest = new DigestUtil();
+        digest.update(installDirectory.getCanonicalPath());
+        digest.update(String.valueOf(noFeaturesSection));
+        digest.update(features.getFrom()).update(features.getTo()).update(String.valueOf(features.isAcceptLicense()));
+        for (String feature : new TreeSet<String>(getPluginListedFeatures(false))) {
+            digest.update(feature);
+        }
+        for (String esa : new TreeSet<String>(getPluginListedFeatures(true))) {
+            File esaFile = new File(esa);
+            digest.update(esa).update(Long.toString(esaFile.length())).update(Long.toString(esaFile.lastModified()));
+        }
+        for (String feature : new TreeSet<String>(getDependencyFeatures())) {
+            digest.update(feature);
+        }
+
+        File serverXml = new File(serverDirectory, "server.xml");
+        digest.update(serverXml);
+        if (serverXml.isFile()) {
+            // features can also come from included files, e.g. outside of the server directory
+            Matcher matcher = INCLUDE_LOCATION.matcher(
+                    new String(Files.readAllBytes(serverXml.toPath()), StandardCharsets.UTF_8));
+            while (matcher.find()) {
+                File include = new File(matcher.group(1));
+                digest.update(include.isAbsolute() ? include : new File(serverDirectory, matcher.group(1)));
+            }
+        }
+        digest.update(new File(serverDirectory, "configDropins"));
+        digest.update(new File(serverDirectory, "bootstrap.properties"));
+        digest.update(new File(serverDirectory, "server.env"));
+
+        digest.update(new File(installDirectory, "lib/versions"));
+        digest.update(new File(installDirectory, "etc/extensions"));
+        addFileList(digest, new File(installDirectory, "lib/features"));
+        addFileList(digest, new File(userDirectory, "extension/lib/features"));
+        return digest.getValue();
+    }
+
+    private void addFileList(DigestUtil digest, File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            digest.update("<missing>");
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            digest.update(file.getName()).update(Long.toString(file.length()))
+                    .update(Long.toString(file.lastModified()));
+        }
+    }
+
     private Set<String> getPluginListedFeatures(boolean findEsaFiles) {
         Set<String> result = new HashSet<String>();
         for (Feature feature : features.getFeatures()) {
@@ -17,9 +17,6 @@ package io.openliberty.tools.maven.server;
 
 import static org.twdata.maven.mojoexecutor.MojoExecutor.artifactId;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.configuration;
-import static org.twdata.maven.mojoexecutor.MojoExecutor.executeMojo;
-import static org.twdata.maven.mojoexecutor.MojoExecutor.executionEnvironment;
-import static org.twdata.maven.mojoexecutor.MojoExecutor.goal;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.groupId;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.plugin;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.version;
@@ -49,15 +46,25 @@ import org.codehaus.plexus.util.xml.Xpp3Dom;
 import org.twdata.maven.mojoexecutor.MojoExecutor.Element;
 
 import io.openliberty.tools.ant.ServerTask;
+import io.openliberty.tools.maven.AbstractLibertySupport;
 import io.openliberty.tools.maven.BasicSupport;
-import io.openliberty.tools.maven.utils.ExecuteMojoUtil;
+import io.openliberty.tools.maven.utils.JandexIndexer;
+import io.openliberty.tools.maven.utils.MojoExecutionPlan;
 import io.openliberty.tools.common.plugins.config.ServerConfigDropinXmlDocument;
 
 import org.apache.maven.model.Plugin;
 import org.apache.maven.plugin.BuildPluginManager;
+import org.apache.maven.plugin.MavenPluginManager;
+import org.apache.maven.plugin.Mojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.PluginConfigurationException;
+import org.apache.maven.plugin.PluginContainerException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
 
 /**
  * Start/Debug server support.
@@ -71,6 +78,7 @@ public class StartDebugMojoSupport extends BasicSupport {
     private static final Pattern pattern = Pattern.compile(LIBERTY_CONFIG_MAVEN_PROPS); 
 
     protected final String PLUGIN_VARIABLE_CONFIG_XML = "configDropins/overrides/liberty-plugin-variable-config.xml";
+    protected final String PLUGIN_JANDEX_CONFIG_XML = "configDropins/overrides/liberty-plugin-jandex-config.xml";
 
     protected Map<String,String> bootstrapMavenProps = new HashMap<String,String>();  
     protected Map<String,String> envMavenProps = new HashMap<String,String>();  
@@ -84,6 +92,17 @@ public class StartDebugMojoSupport extends BasicSupport {
     @Component
     protected BuildPluginManager pluginManager;
 
+    @Component
+    protected MavenPluginManager mavenPluginManager;
+
+    /**
+     * The running liberty-maven-plugin, its goals are run directly.
+     */
+    @Parameter(defaultValue = "${plugin}", readonly = true)
+    private PluginDescriptor pluginDescriptor;
+
+    private MojoExecutionPlan executionPlan;
+
     /**
      * Location of customized configuration file server.xml
      */
@@ -108,6 +127,13 @@ public class StartDebugMojoSupport extends BasicSupport {
     @Parameter
     protected List<String> jvmOptions;
 
+    /**
+     * Write Jandex annotation indexes for the classes of the loose application
+     * and configure the server to read them instead of scanning the classes.
+     */
+    @Parameter(property = "useJandex", defaultValue = "false")
+    protected boolean useJandex;
+
     private enum PropertyType {
         BOOTSTRAP("liberty.bootstrap."),
         ENV("liberty.env."),
@@ -162,11 +188,22 @@ public class StartDebugMojoSupport extends BasicSupport {
     
     protected void runMojo(String groupId, String artifactId, String goal) throws MojoExecutionException {
         Plugin plugin = getPlugin(groupId, artifactId);
-        Xpp3Dom config = ExecuteMojoUtil.getPluginGoalConfig(plugin, goal, log);
+        Xpp3Dom config = getExecutionPlan().getPluginGoalConfig(plugin, goal, project);
         log.info("Running " + artifactId + ":" + goal);
         log.debug("configuration:\n" + config);
-        executeMojo(plugin, goal(goal), config,
-                executionEnvironment(project, session, pluginManager));
+        getExecutionPlan().execute(plugin, goal, config, project, session);
+    }
+
+    /**
+     * Get the plan that keeps plugin resolution and goal configuration for the
+     * goals run by this mojo. Call {@link MojoExecutionPlan#invalidate()} when
+     * the project changes.
+     */
+    protected synchronized MojoExecutionPlan getExecutionPlan() {
+        if (executionPlan == null) {
+            executionPlan = new MojoExecutionPlan(pluginManager, log);
+        }
+        return executionPlan;
     }
     
     /**
@@ -193,7 +230,7 @@ public class StartDebugMojoSupport extends BasicSupport {
     }
 
     protected void runLibertyMojoCreate() throws MojoExecutionException {
-        Xpp3Dom config = ExecuteMojoUtil.getPluginGoalConfig(getLibertyPlugin(), "create", log);
+        Xpp3Dom config = getExecutionPlan().getPluginGoalConfig(getLibertyPlugin(), "create", project);
         runLibertyMojo("create", config);
     }
 
@@ -202,7 +239,7 @@ public class StartDebugMojoSupport extends BasicSupport {
     }
     
     protected void runLibertyMojoDeploy(boolean forceLooseApp) throws MojoExecutionException {
-        Xpp3Dom config = ExecuteMojoUtil.getPluginGoalConfig(getLibertyPlugin(), "deploy", log);
+        Xpp3Dom config = getExecutionPlan().getPluginGoalConfig(getLibertyPlugin(), "deploy", project);
         if(forceLooseApp) {
             Xpp3Dom looseApp = config.getChild("looseApplication");
             if (looseApp != null && "false".equals(looseApp.getValue())) {
@@ -214,18 +251,59 @@ public class StartDebugMojoSupport extends BasicSupport {
     }
 
     protected void runLibertyMojoInstallFeature(Element features) throws MojoExecutionException {
-        Xpp3Dom config = ExecuteMojoUtil.getPluginGoalConfig(getLibertyPlugin(), "install-feature", log);;
+        Xpp3Dom config = getExecutionPlan().getPluginGoalConfig(getLibertyPlugin(), "install-feature", project);
         if (features != null) {
             config = Xpp3Dom.mergeXpp3Dom(configuration(features), config);
         }
         runLibertyMojo("install-feature", config);
     }
 
+    /**
+     * Run a goal of this plugin in process. The goal is configured like a
+     * normal execution, but it shares the runtime installation, server
+     * directory and Ant project of this goal instead of initializing them again.
+     */
     private void runLibertyMojo(String goal, Xpp3Dom config) throws MojoExecutionException {
         log.info("Running liberty:" + goal);
         log.debug("configuration:\n" + config);
-        executeMojo(getLibertyPlugin(), goal(goal), config,
-                executionEnvironment(project, session, pluginManager));
+        if (pluginDescriptor == null) {
+            getExecutionPlan().execute(getLibertyPlugin(), goal, config, project, session);
+            return;
+        }
+        MojoExecution execution = getExecutionPlan().getMojoExecution(pluginDescriptor, goal, config);
+        AbstractLibertySupport mojo;
+        try {
+            mojo = (AbstractLibertySupport) mavenPluginManager.getConfiguredMojo(Mojo.class, session, execution);
+        } catch (PluginConfigurationException | PluginContainerException e) {
+            throw new MojoExecutionException("Unable to configure liberty:" + goal, e);
+        }
+        try {
+            mojo.executeFrom(this);
+        } catch (MojoExecutionException | MojoFailureException e) {
+            // same as a mojo run through the plugin manager
+            throw new MojoExecutionException("Unable to execute mojo", e);
+        } finally {
+            mavenPluginManager.releaseMojo(mojo, execution);
+        }
+    }
+
+    @Override
+    protected void initFrom(AbstractLibertySupport source) {
+        super.initFrom(source);
+        if (source instanceof StartDebugMojoSupport) {
+            useJandex |= ((StartDebugMojoSupport) source).useJandex;
+        }
+    }
+
+    /**
+     * Write the Jandex index of the output directory of a project if
+     * useJandex is enabled and its classes changed.
+     */
+    protected void indexClasses(MavenProject proj) {
+        if (useJandex) {
+            new JandexIndexer(log).index(new File(proj.getBuild().getOutputDirectory()),
+                    new File(proj.getBuild().getDirectory(), "liberty-plugin-jandex.stamp"));
+        }
     }
 
     /**
@@ -347,6 +425,13 @@ public class StartDebugMojoSupport extends BasicSupport {
             writeConfigDropinsServerVariables(pluginVariableConfig, varMavenProps, defaultVarMavenProps);  
         }
 
+        File pluginJandexConfig = new File(serverDirectory, PLUGIN_JANDEX_CONFIG_XML);
+        if (useJandex) {
+            writeConfigDropinsJandex(pluginJandexConfig);
+        } else if (pluginJandexConfig.exists()) {
+            pluginJandexConfig.delete();
+        }
+
         // log info on the configuration files that get used
         if (serverXMLPath != null && !serverXMLPath.isEmpty()) {
             log.info(MessageFormat.format(messages.getString("info.server.start.update.config"),
@@ -524,6 +609,23 @@ public class StartDebugMojoSupport extends BasicSupport {
 
     }
 
+    private void writeConfigDropinsJandex(File file) throws IOException {
+        makeParentDirectory(file);
+        PrintWriter writer = null;
+        try {
+            writer = new PrintWriter(file, "UTF-8");
+            writer.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            writer.println("<server>");
+            writer.println("    <!-- Generated by liberty-maven-plugin -->");
+            writer.println("    <applicationManager useJandex=\"true\"/>");
+            writer.println("</server>");
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+
     private void makeParentDirectory(File file) {
         File parentDir = file.getParentFile();
         if (parentDir != null) {
@@ -15,13 +15,18 @@
  */
 package io.openliberty.tools.maven.server;
 
+import java.io.File;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 
 import io.openliberty.tools.ant.ServerTask;
+import io.openliberty.tools.maven.utils.LogTail;
 
 /**
  * Start a liberty server
@@ -82,22 +87,24 @@ public class StartServerMojo extends StartDebugMojoSupport {
             serverStartTimeout = 30;
         }
         serverTask.setTimeout(Long.toString(serverStartTimeout * 1000));
+        // only messages of this start count, the log may contain earlier starts
+        LogTail logTail = new LogTail(new File(new File(outputDirectory, serverName), "logs/messages.log"), log).bookmark();
         serverTask.execute();
 
         if (verifyTimeout < 0) {
             verifyTimeout = 30;
         }
-        long timeout = verifyTimeout * 1000;
-        long endTime = System.currentTimeMillis() + timeout;
         if (applications != null) {
-            String[] apps = applications.split("[,\\s]+");
-            for (String archiveName : apps) {
-                String startMessage = serverTask.waitForStringInLog(START_APP_MESSAGE_REGEXP + archiveName, timeout, serverTask.getLogFile());
-                if (startMessage == null) {
-                    stopServer();
-                    throw new MojoExecutionException(MessageFormat.format(messages.getString("error.server.start.verify"), verifyTimeout));
-                }
-                timeout = endTime - System.currentTimeMillis();
+            // wait for all applications at once
+            List<String> startMessages = new ArrayList<String>();
+            for (String archiveName : applications.split("[,\\s]+")) {
+                startMessages.add(START_APP_MESSAGE_REGEXP + archiveName);
+            }
+            Set<String> missing = logTail.waitFor(startMessages, verifyTimeout * 1000L);
+            if (!missing.isEmpty()) {
+                log.debug("Start messages not found: " + missing);
+                stopServer();
+                throw new MojoExecutionException(MessageFormat.format(messages.getString("error.server.start.verify"), verifyTimeout));
             }
         }
     }
@@ -0,0 +1,211 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Decides how long dev mode waits before processing Java changes.
+ *
+ * Instead of a fixed delay, file events under the watched source directories
+ * are recorded and the wait is derived from the current burst of events:
+ * <ul>
+ * <li>an isolated save is processed after the minimum wait</li>
+ * <li>a burst of saves (IDE refactor, formatter) is processed once the source
+ * tree has been quiet for a few times the average gap between its events</li>
+ * <li>a git checkout, merge or rebase, recognized by git moving HEAD, is
+ * processed as one batch once the tree has settled</li>
+ * </ul>
+ * The total wait never exceeds the maximum wait.
+ */
+public class AdaptiveDebouncer extends DirectoryWatcher<File> {
+
+    /** Gap without events that separates one burst from the next. */
+    private static final long BURST_GAP_MILLIS = 1000;
+
+    /** Editors commonly write a file as temp file + rename, count that as a single save. */
+    private static final int ISOLATED_SAVE_EVENTS = 3;
+
+    /** Multiple of the average gap between burst events that must pass quietly. */
+    private static final int QUIET_GAP_FACTOR = 3;
+
+    private static final long POLL_MILLIS = 20;
+
+    // written by checkout, merge, rebase and reset, but not by commands such as
+    // git status that only refresh the index
+    private static final String[] GIT_OPERATION_FILES = { "HEAD", "ORIG_HEAD" };
+
+    private final List<File> directories;
+    private final File gitDirectory;
+    private final long minWaitMillis;
+    private final long burstWaitMillis;
+    private final long maxWaitMillis;
+
+    private final Object lock = new Object();
+
+    // burst state, guarded by lock
+    private long burstStart = 0;
+    private long lastEvent = 0;
+    private int burstEvents = 0;
+    private long lastGitOperation = 0;
+
+    /**
+     * @param directories
+     *            source directories to watch
+     * @param gitDirectory
+     *            the .git directory of the project, or null if not in a git
+     *            repository
+     * @param minWaitMillis
+     *            wait for an isolated save
+     * @param burstWaitMillis
+     *            minimum quiet time after a burst of saves
+     * @param maxWaitMillis
+     *            upper bound for any wait
+     * @param log
+     */
+    public AdaptiveDebouncer(List<File> directories, File gitDirectory, long minWaitMillis, long burstWaitMillis,
+            long maxWaitMillis, Log log) {
+        super("liberty-dev-debouncer", log);
+        this.directories = directories;
+        this.gitDirectory = gitDirectory;
+        this.minWaitMillis = minWaitMillis;
+        this.burstWaitMillis = Math.max(minWaitMillis, burstWaitMillis);
+        this.maxWaitMillis = Math.max(this.burstWaitMillis, maxWaitMillis);
+    }
+
+    /**
+     * Find the .git directory of the given directory or any of its parents.
+     *
+     * @param dir
+     *            the project base directory
+     * @return the .git directory or null if there is none
+     */
+    public static File findGitDirectory(File dir) {
+        File current = dir == null ? null : dir.getAbsoluteFile();
+        while (current != null) {
+            File git = new File(current, ".git");
+            if (git.isDirectory()) {
+                return git;
+            }
+            current = current.getParentFile();
+        }
+        return null;
+    }
+
+    /**
+     * Start recording file events on a daemon thread.
+     */
+    @Override
+    public void start() throws IOException {
+        for (File dir : directories) {
+            watch(dir, dir, true);
+        }
+        if (gitDirectory != null) {
+            watch(gitDirectory, gitDirectory, false);
+        }
+        super.start();
+    }
+
+    /**
+     * Block until the current burst of changes has settled.
+     *
+     * @return the time waited in milliseconds
+     */
+    public long awaitQuiet() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        long deadline = start + maxWaitMillis;
+        String mode = "isolated save";
+        int events = 0;
+
+        while (true) {
+            long now = System.currentTimeMillis();
+            long requiredQuiet;
+            long sinceLastEvent;
+            synchronized (lock) {
+                events = burstEvents;
+                sinceLastEvent = lastEvent == 0 ? Long.MAX_VALUE : now - lastEvent;
+                if (lastGitOperation != 0 && lastGitOperation >= burstStart) {
+                    mode = "git operation";
+                    requiredQuiet = Math.max(burstWaitMillis, BURST_GAP_MILLIS);
+                } else if (burstEvents <= ISOLATED_SAVE_EVENTS) {
+                    mode = "isolated save";
+                    requiredQuiet = minWaitMillis;
+                } else {
+                    mode = "burst";
+                    long averageGap = (lastEvent - burstStart) / (burstEvents - 1);
+                    requiredQuiet = Math.max(burstWaitMillis, QUIET_GAP_FACTOR * averageGap);
+                }
+            }
+            if (sinceLastEvent >= requiredQuiet || now >= deadline) {
+                break;
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+
+        long waited = System.currentTimeMillis() - start;
+        log.debug("Adaptive compile wait: " + waited + " ms for " + mode + " (" + events + " file events)");
+        return waited;
+    }
+
+    /**
+     * @return time in milliseconds of the first event of the current burst, or
+     *         0 if no event has been seen yet
+     */
+    public long getBurstStart() {
+        synchronized (lock) {
+            return burstStart;
+        }
+    }
+
+    @Override
+    protected void fileChanged(File root, File file) {
+        if (root.equals(gitDirectory)) {
+            if (isGitOperationFile(file.getName())) {
+                recordEvent(true);
+            }
+            return;
+        }
+        recordEvent(false);
+    }
+
+    private boolean isGitOperationFile(String name) {
+        for (String f : GIT_OPERATION_FILES) {
+            if (f.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void recordEvent(boolean gitOperation) {
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            if (lastEvent == 0 || now - lastEvent > BURST_GAP_MILLIS) {
+                burstStart = now;
+                burstEvents = 0;
+            }
+            burstEvents++;
+            lastEvent = now;
+            if (gitOperation) {
+                lastGitOperation = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Publishes an application archive to a server directory.
+ *
+ * Nothing is written when the deployed archive has the same content. Otherwise
+ * the archive is cloned with a copy-on-write reflink where the file system
+ * supports it, or copied with FileChannel.transferTo, to a temporary file that
+ * is then renamed over the target, so that Liberty never sees a partially
+ * written archive. The temporary file is kept out of the monitored
+ * application directories, so Liberty does not see it at all.
+ *
+ * Hard links are not used: the Maven archivers rewrite the archive in the
+ * build directory in place, which would change the deployed archive while it
+ * is being written.
+ */
+public class ArchivePublisher {
+
+    public enum Result {
+        UNCHANGED, CLONED, COPIED
+    }
+
+    // read and written by the publish threads of installApps
+    private static volatile Boolean reflinkSupported;
+
+    private final Log log;
+
+    public ArchivePublisher(Log log) {
+        this.log = log;
+    }
+
+    /**
+     * @return true if the target exists and has the same content as the source
+     */
+    public boolean isUnchanged(File source, File target) throws IOException {
+        if (!target.isFile() || source.length() != target.length()) {
+            return false;
+        }
+        if (Files.isSameFile(source.toPath(), target.toPath())) {
+            return true;
+        }
+        return DigestUtil.getCachedDigest(source).equals(DigestUtil.getCachedDigest(target));
+    }
+
+    /**
+     * Publish the source archive as the target file.
+     *
+     * @param tempDirectory
+     *            where the archive is written before it is renamed, on the
+     *            same file system as the target
+     */
+    public Result publish(File source, File target, File tempDirectory) throws IOException {
+        if (isUnchanged(source, target)) {
+            log.debug(target + " is unchanged");
+            return Result.UNCHANGED;
+        }
+        File parent = target.getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory " + parent);
+        }
+        if (!tempDirectory.exists() && !tempDirectory.mkdirs()) {
+            throw new IOException("Unable to create directory " + tempDirectory);
+        }
+        File temp = new File(tempDirectory, "." + target.getName() + ".tmp");
+        Result result;
+        try {
+            if (reflink(source, temp)) {
+                result = Result.CLONED;
+            } else {
+                copy(source, temp);
+                result = Result.COPIED;
+            }
+            temp.setLastModified(source.lastModified());
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+        log.debug((result == Result.CLONED ? "Cloned " : "Copied ") + source + " to " + target);
+        return result;
+    }
+
+    /**
+     * Clone the file with "cp --reflink=always" on Linux or "cp -c" on macOS.
+     * The command fails without writing anything when the file system cannot
+     * clone the file, e.g. across file systems.
+     *
+     * @return true if the file was cloned
+     */
+    private boolean reflink(File source, File target) {
+        String os = System.getProperty("os.name", "").toLowerCase(Locale.ENGLISH);
+        String[] command;
+        if (os.contains("linux")) {
+            command = new String[] { "cp", "--reflink=always", source.getAbsolutePath(), target.getAbsolutePath() };
+        } else if (os.contains("mac")) {
+            command = new String[] { "cp", "-c", source.getAbsolutePath(), target.getAbsolutePath() };
+        } else {
+            return false;
+        }
+        if (Boolean.FALSE.equals(reflinkSupported)) {
+            return false;
+        }
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            process.getOutputStream().close();
+            process.getInputStream().close();
+            boolean cloned = process.waitFor() == 0;
+            if (!cloned) {
+                // the file system of the server cannot clone, do not try again
+                log.debug("Unable to clone " + source + ", copying instead");
+                reflinkSupported = false;
+                target.delete();
+            }
+            return cloned;
+        } catch (IOException e) {
+            // no cp command, do not try again
+            log.debug("Unable to clone " + source, e);
+            reflinkSupported = false;
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void copy(File source, File target) throws IOException {
+        FileInputStream in = new FileInputStream(source);
+        try {
+            FileOutputStream out = new FileOutputStream(target);
+            try {
+                FileChannel inChannel = in.getChannel();
+                FileChannel outChannel = out.getChannel();
+                long size = inChannel.size();
+                long position = 0;
+                // transferTo copies in the kernel where possible, but may
+                // transfer less than requested
+                while (position < size) {
+                    position += inChannel.transferTo(position, size - position, outChannel);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
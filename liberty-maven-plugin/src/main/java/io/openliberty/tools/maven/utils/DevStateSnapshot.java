@@ -0,0 +1,185 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * State that dev mode saves under the build directory when it exits, so that
+ * the next dev mode session can skip the startup steps whose inputs have not
+ * changed.
+ *
+ * Each step is recorded with a digest of its inputs. The snapshot file is
+ * deleted when it is loaded and only written again on a clean exit, so a
+ * session that is killed never leaves a snapshot that claims to be current.
+ */
+public class DevStateSnapshot {
+
+    public static final String FILE_NAME = "liberty-dev-state.properties";
+
+    private static final String FORMAT_KEY = "format";
+    private static final String FORMAT = "1";
+    private static final String STEP_PREFIX = "step.";
+    private static final String LIST_SEPARATOR = "\n";
+
+    private final File file;
+    private final Properties previous;
+    private final Properties current = new Properties();
+    private final Log log;
+
+    private DevStateSnapshot(File file, Properties previous, Log log) {
+        this.file = file;
+        this.previous = previous;
+        this.log = log;
+    }
+
+    /**
+     * Load the snapshot of the previous session and remove it from disk.
+     *
+     * @param buildDirectory
+     *            the project build directory
+     * @param log
+     * @return the snapshot, which is empty if there was no usable snapshot
+     */
+    public static DevStateSnapshot load(File buildDirectory, Log log) {
+        File file = new File(buildDirectory, FILE_NAME);
+        Properties previous = new Properties();
+        if (file.isFile()) {
+            try {
+                InputStream in = new FileInputStream(file);
+                try {
+                    previous.load(in);
+                } finally {
+                    in.close();
+                }
+                if (!FORMAT.equals(previous.getProperty(FORMAT_KEY))) {
+                    previous.clear();
+                }
+            } catch (IOException e) {
+                log.debug("Unable to read dev mode state from " + file, e);
+                previous.clear();
+            }
+            if (!file.delete()) {
+                log.debug("Unable to delete " + file);
+            }
+        }
+        return new DevStateSnapshot(file, previous, log);
+    }
+
+    /**
+     * @return true if a snapshot from a previous session was loaded
+     */
+    public boolean isEmpty() {
+        return previous.isEmpty();
+    }
+
+    /**
+     * @param step
+     *            step name
+     * @param digest
+     *            digest of the current inputs of the step
+     * @return true if the previous session recorded the step with the same
+     *         input digest
+     */
+    public boolean isUnchanged(String step, String digest) {
+        return digest != null && digest.equals(previous.getProperty(STEP_PREFIX + step));
+    }
+
+    /**
+     * Record the input digest of a step for the next session.
+     */
+    public void recordStep(String step, String digest) {
+        if (digest != null) {
+            current.setProperty(STEP_PREFIX + step, digest);
+        }
+    }
+
+    /**
+     * Remove the record of a step, so that it runs on the next session.
+     */
+    public void removeStep(String step) {
+        current.remove(STEP_PREFIX + step);
+    }
+
+    /**
+     * @return the values saved under the key by the previous session, or null
+     *         if there are none
+     */
+    public List<String> getValues(String key) {
+        String value = previous.getProperty(key);
+        if (value == null) {
+            return null;
+        }
+        List<String> values = new ArrayList<String>();
+        for (String v : value.split(LIST_SEPARATOR)) {
+            if (!v.isEmpty()) {
+                values.add(v);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Save values under the key for the next session.
+     */
+    public void setValues(String key, Collection<String> values) {
+        StringBuilder sb = new StringBuilder();
+        for (String v : values) {
+            sb.append(v).append(LIST_SEPARATOR);
+        }
+        current.setProperty(key, sb.toString());
+    }
+
+    /**
+     * Write the recorded state. The file is replaced atomically so that a
+     * partially written snapshot is never read.
+     */
+    public void save() {
+        File parent = file.getParentFile();
+        if (parent == null || (!parent.exists() && !parent.mkdirs())) {
+            return;
+        }
+        current.setProperty(FORMAT_KEY, FORMAT);
+        File temp = new File(parent, FILE_NAME + ".tmp");
+        try {
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                current.store(out, "Liberty dev mode state");
+            } finally {
+                out.close();
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Saved dev mode state to " + file);
+        } catch (IOException e) {
+            log.debug("Unable to save dev mode state to " + file, e);
+            temp.delete();
+        }
+    }
+}
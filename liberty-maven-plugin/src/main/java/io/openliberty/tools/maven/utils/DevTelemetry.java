@@ -0,0 +1,239 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Records how long each stage of a dev mode change cycle takes, from the file
+ * event to the tests finishing.
+ *
+ * Each cycle is appended as one JSON object per line to the output file, with
+ * the time of each stage in milliseconds after the file event. Percentiles of
+ * all cycles of the session are available from {@link #getSummary()}.
+ */
+public class DevTelemetry {
+
+    public static final String FILE_NAME = "liberty-dev-telemetry.jsonl";
+
+    public static final String EVENT_DETECTED = "eventDetected";
+    public static final String DEBOUNCE_DONE = "debounceDone";
+    public static final String COMPILE_DONE = "compileDone";
+    public static final String RESOURCES_COPIED = "resourcesCopied";
+    public static final String APP_UPDATED = "appUpdated";
+    public static final String TESTS_FINISHED = "testsFinished";
+
+    private static final String[] STAGES = { DEBOUNCE_DONE, COMPILE_DONE, RESOURCES_COPIED, APP_UPDATED,
+            TESTS_FINISHED };
+
+    // application started or updated
+    private static final String APP_UPDATED_REGEXP = "CWWKZ000[13]I";
+
+    // how often the watch of the messages log checks whether its cycle is still current
+    private static final long WATCH_SLICE_MILLIS = 200;
+
+    private final File outputFile;
+    private final File messagesLog;
+    private final Log log;
+
+    // one daemon thread for all cycles, a watch ends when its cycle ends
+    private final ExecutorService watchExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "liberty-dev-telemetry");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    private final Map<String, List<Long>> latencies = new LinkedHashMap<String, List<Long>>();
+    private int cycleCount = 0;
+
+    // current cycle, guarded by this
+    private Map<String, Long> cycle = null;
+    private String trigger;
+    private boolean testsExpected;
+    private LogTail logTail;
+
+    /**
+     * @param outputFile
+     *            JSON lines file that cycles are appended to
+     * @param messagesLog
+     *            the server messages.log, scanned for the application update
+     *            message
+     * @param log
+     */
+    public DevTelemetry(File outputFile, File messagesLog, Log log) {
+        this.outputFile = outputFile;
+        this.messagesLog = messagesLog;
+        this.log = log;
+        for (String stage : STAGES) {
+            latencies.put(stage, new ArrayList<Long>());
+        }
+    }
+
+    /**
+     * Start a new cycle. A cycle that is still open is written first.
+     *
+     * @param trigger
+     *            what changed, e.g. "source"
+     * @param eventTime
+     *            time in milliseconds of the first file event of the change
+     * @param testsExpected
+     *            whether tests run automatically at the end of the cycle
+     */
+    public synchronized void startCycle(String trigger, long eventTime, boolean testsExpected) {
+        endCycle();
+        this.cycle = new LinkedHashMap<String, Long>();
+        this.trigger = trigger;
+        this.testsExpected = testsExpected;
+        cycle.put(EVENT_DETECTED, eventTime);
+        logTail = new LogTail(messagesLog, log).bookmark();
+    }
+
+    /**
+     * Record that a stage of the current cycle is done. Ignored when there is
+     * no open cycle, e.g. for tests run on demand.
+     */
+    public synchronized void mark(String stage) {
+        if (cycle != null && !cycle.containsKey(stage)) {
+            cycle.put(stage, System.currentTimeMillis());
+            if (TESTS_FINISHED.equals(stage) || (APP_UPDATED.equals(stage) && !testsExpected)) {
+                endCycle();
+            }
+        }
+    }
+
+    /**
+     * Watch the messages log on a daemon thread and mark the application
+     * update of the current cycle when the server reports it. The watch stops
+     * when the cycle ends.
+     *
+     * @param timeoutMillis
+     *            how long to watch for
+     */
+    public synchronized void watchAppUpdate(final long timeoutMillis) {
+        if (cycle == null) {
+            return;
+        }
+        final Map<String, Long> watchedCycle = cycle;
+        final LogTail tail = logTail;
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        watchExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                while (isCurrent(watchedCycle)) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return;
+                    }
+                    if (tail.waitFor(APP_UPDATED_REGEXP, Math.min(WATCH_SLICE_MILLIS, remaining))) {
+                        synchronized (DevTelemetry.this) {
+                            if (cycle == watchedCycle) {
+                                mark(APP_UPDATED);
+                            }
+                        }
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    private synchronized boolean isCurrent(Map<String, Long> watchedCycle) {
+        return cycle == watchedCycle;
+    }
+
+    /**
+     * Write the current cycle, if any.
+     */
+    public synchronized void endCycle() {
+        if (cycle == null) {
+            return;
+        }
+        long start = cycle.get(EVENT_DETECTED);
+        cycleCount++;
+        StringBuilder json = new StringBuilder();
+        json.append("{\"cycle\":").append(cycleCount);
+        json.append(",\"trigger\":\"").append(trigger).append('"');
+        json.append(",\"timestamp\":").append(start);
+        for (Map.Entry<String, Long> entry : cycle.entrySet()) {
+            long elapsed = entry.getValue() - start;
+            json.append(",\"").append(entry.getKey()).append("\":").append(elapsed);
+            List<Long> values = latencies.get(entry.getKey());
+            if (values != null) {
+                values.add(elapsed);
+            }
+        }
+        json.append("}\n");
+        cycle = null;
+
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(outputFile, true), StandardCharsets.UTF_8);
+            try {
+                writer.write(json.toString());
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            log.debug("Unable to write dev mode telemetry to " + outputFile, e);
+        }
+    }
+
+    /**
+     * @return p50 and p95 of the time from the file event to each stage, over
+     *         all cycles of this session
+     */
+    public synchronized String getSummary() {
+        if (cycleCount == 0) {
+            return "No change cycles have been recorded yet.";
+        }
+        StringBuilder sb = new StringBuilder("Latency after a file change over " + cycleCount + " cycle(s), written to "
+                + outputFile + ":");
+        sb.append(String.format("%n  %-18s %8s %8s %6s", "stage", "p50 ms", "p95 ms", "count"));
+        for (Map.Entry<String, List<Long>> entry : latencies.entrySet()) {
+            List<Long> values = new ArrayList<Long>(entry.getValue());
+            if (values.isEmpty()) {
+                continue;
+            }
+            Collections.sort(values);
+            sb.append(String.format("%n  %-18s %8d %8d %6d", entry.getKey(), percentile(values, 50),
+                    percentile(values, 95), values.size()));
+        }
+        return sb.toString();
+    }
+
+    private static long percentile(List<Long> sorted, int percent) {
+        // nearest rank
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+}
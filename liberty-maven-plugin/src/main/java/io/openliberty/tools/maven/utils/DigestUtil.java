@@ -0,0 +1,155 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Computes SHA-256 digests of files, directory trees and strings.
+ */
+public class DigestUtil {
+
+    private static final String ALGORITHM = "SHA-256";
+
+    // digests of files by path, size and modification time, shared by the goals of a build
+    private static final Map<String, String> cachedDigests = new HashMap<String, String>();
+
+    private final MessageDigest md;
+
+    public DigestUtil() {
+        md = newMessageDigest();
+    }
+
+    /**
+     * Add a string to the digest.
+     */
+    public DigestUtil update(String value) {
+        md.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+        return this;
+    }
+
+    /**
+     * Add a file or a directory tree to the digest. The relative path and the
+     * contents of each file are included, so renames are detected. A file that
+     * does not exist is recorded as missing.
+     */
+    public DigestUtil update(File file) throws IOException {
+        if (file == null || !file.exists()) {
+            return update("<missing>");
+        }
+        update(file, "");
+        return this;
+    }
+
+    private void update(File file, String relativePath) throws IOException {
+        if (file.isDirectory()) {
+            update(relativePath + "/");
+            File[] children = file.listFiles();
+            if (children != null) {
+                Arrays.sort(children);
+                for (File child : children) {
+                    update(child, relativePath + "/" + child.getName());
+                }
+            }
+        } else {
+            update(relativePath);
+            updateContents(md, file);
+        }
+    }
+
+    /**
+     * @return the digest as a hex string. The digest is reset.
+     */
+    public String getValue() {
+        return toHex(md.digest());
+    }
+
+    /**
+     * @return the hex digest of the contents of a single file
+     */
+    public static String digest(File file) throws IOException {
+        MessageDigest md = newMessageDigest();
+        updateContents(md, file);
+        return toHex(md.digest());
+    }
+
+    /**
+     * @return the hex digest of the contents of a single file, cached by
+     *         {@link #getFileKey(File)}
+     */
+    public static String getCachedDigest(File file) throws IOException {
+        String key = getFileKey(file);
+        synchronized (cachedDigests) {
+            String digest = cachedDigests.get(key);
+            if (digest != null) {
+                return digest;
+            }
+        }
+        String digest = digest(file);
+        synchronized (cachedDigests) {
+            cachedDigests.put(key, digest);
+        }
+        return digest;
+    }
+
+    /**
+     * @return a key that changes when a file is replaced or written: its path,
+     *         size and modification time
+     */
+    public static String getFileKey(File file) throws IOException {
+        return file.getCanonicalPath() + "|" + file.length() + "|" + file.lastModified();
+    }
+
+    private static void updateContents(MessageDigest md, File file) throws IOException {
+        byte[] buffer = new byte[8192];
+        InputStream in = new FileInputStream(file);
+        try {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                md.update(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
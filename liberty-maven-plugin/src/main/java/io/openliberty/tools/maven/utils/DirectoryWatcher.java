@@ -0,0 +1,214 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven.utils;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Watches directories on a daemon thread and passes every file event to the
+ * subclass, together with the tag that the directory was added with.
+ * Directories created under a recursively watched directory are watched too.
+ *
+ * @param <T>
+ *            the tag type
+ */
+public abstract class DirectoryWatcher<T> {
+
+    private static class Registration<T> {
+        private final Path dir;
+        private final T tag;
+        private final boolean recursive;
+
+        Registration(Path dir, T tag, boolean recursive) {
+            this.dir = dir;
+            this.tag = tag;
+            this.recursive = recursive;
+        }
+    }
+
+    private final String threadName;
+    protected final Log log;
+
+    private final Map<WatchKey, Registration<T>> registrations = new HashMap<WatchKey, Registration<T>>();
+    private WatchService watcher;
+
+    /**
+     * @param threadName
+     *            name of the watcher thread
+     * @param log
+     */
+    protected DirectoryWatcher(String threadName, Log log) {
+        this.threadName = threadName;
+        this.log = log;
+    }
+
+    /**
+     * Called on the watcher thread for each file event.
+     *
+     * @param tag
+     *            the tag of the watched directory
+     * @param file
+     *            the file or directory that was created, modified or deleted,
+     *            or the watched directory itself if events were lost
+     */
+    protected abstract void fileChanged(T tag, File file);
+
+    /**
+     * @return how long the watcher thread waits for the next event before it
+     *         calls {@link #idle()}, or a negative value to wait until there is
+     *         an event
+     */
+    protected long getPollMillis() {
+        return -1;
+    }
+
+    /**
+     * Called on the watcher thread when no event arrived within
+     * {@link #getPollMillis()}.
+     */
+    protected void idle() {
+    }
+
+    /**
+     * Watch a directory. A directory that does not exist is ignored.
+     *
+     * @param dir
+     * @param tag
+     *            passed to {@link #fileChanged(Object, File)} for events in
+     *            the directory
+     * @param recursive
+     *            true to watch the subdirectories too
+     */
+    protected synchronized void watch(File dir, final T tag, final boolean recursive) throws IOException {
+        if (dir == null || !dir.isDirectory()) {
+            return;
+        }
+        if (watcher == null) {
+            watcher = FileSystems.getDefault().newWatchService();
+        }
+        if (!recursive) {
+            register(dir.toPath(), tag, false);
+            return;
+        }
+        Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) throws IOException {
+                register(d, tag, true);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void register(Path dir, T tag, boolean recursive) throws IOException {
+        WatchKey key = dir.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        registrations.put(key, new Registration<T>(dir, tag, recursive));
+    }
+
+    /**
+     * Start watching on a daemon thread.
+     */
+    public synchronized void start() throws IOException {
+        if (watcher == null) {
+            watcher = FileSystems.getDefault().newWatchService();
+        }
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                processEvents();
+            }
+        }, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop watching. The watcher thread ends without processing further events.
+     */
+    public synchronized void stop() {
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                log.debug(e);
+            }
+        }
+    }
+
+    private void processEvents() {
+        while (true) {
+            WatchKey key;
+            try {
+                long pollMillis = getPollMillis();
+                key = pollMillis < 0 ? watcher.take() : watcher.poll(pollMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+            if (key == null) {
+                idle();
+                continue;
+            }
+            Registration<T> registration;
+            synchronized (this) {
+                registration = registrations.get(key);
+            }
+            if (registration != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        fileChanged(registration.tag, registration.dir.toFile());
+                        continue;
+                    }
+                    Path child = registration.dir.resolve((Path) event.context());
+                    if (registration.recursive && event.kind() == ENTRY_CREATE && Files.isDirectory(child)) {
+                        try {
+                            watch(child.toFile(), registration.tag, true);
+                        } catch (IOException e) {
+                            log.debug("Unable to watch " + child, e);
+                        }
+                    }
+                    fileChanged(registration.tag, child.toFile());
+                }
+            }
+            if (!key.reset()) {
+                synchronized (this) {
+                    registrations.remove(key);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,405 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * A local index of the feature artifacts (ESAs and the feature JSON files)
+ * that install-feature downloaded, so that later runs neither resolve them
+ * again nor wait for them one at a time.
+ *
+ * For each artifact the index keeps the file, and for each ESA the symbolic
+ * name, the short name and the features it depends on, read from its
+ * OSGI-INF/SUBSYSTEM.MF. The dependency closure of a set of features is
+ * computed from the index and the features that are installed in the
+ * runtime already, so the ESAs that are not in the local repository yet can
+ * be resolved together before the installer asks for them. Snapshot and range
+ * versions are never indexed.
+ */
+public class EsaIndex {
+
+    private static final String SUBSYSTEM_MANIFEST = "OSGI-INF/SUBSYSTEM.MF";
+    private static final String FEATURE_TYPE = "osgi.subsystem.feature";
+
+    private final File indexFile;
+    private final Log log;
+    private final Properties index = new Properties();
+    private boolean changed;
+
+    /**
+     * @param indexFile
+     *            where the index is kept
+     * @param log
+     */
+    public EsaIndex(File indexFile, Log log) {
+        this.indexFile = indexFile;
+        this.log = log;
+        index.putAll(load(indexFile));
+    }
+
+    private Properties load(File file) {
+        Properties properties = new Properties();
+        if (file.isFile()) {
+            try {
+                InputStream in = new FileInputStream(file);
+                try {
+                    properties.load(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                log.debug("Unable to read " + file, e);
+                properties.clear();
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * @return the indexed file of the artifact, or null if it is not indexed
+     *         or the file no longer exists
+     */
+    public synchronized File getFile(String groupId, String artifactId, String type, String version) {
+        if (!isIndexable(version)) {
+            return null;
+        }
+        String path = index.getProperty(getKey(groupId, artifactId, type, version) + ".file");
+        if (path == null) {
+            return null;
+        }
+        File file = new File(path);
+        return file.isFile() ? file : null;
+    }
+
+    /**
+     * Add a resolved artifact to the index.
+     */
+    public synchronized void add(String groupId, String artifactId, String type, String version, File file) {
+        if (!isIndexable(version) || file == null || !file.isFile()) {
+            return;
+        }
+        String key = getKey(groupId, artifactId, type, version);
+        index.setProperty(key + ".file", file.getAbsolutePath());
+        changed = true;
+        if (!"esa".equals(type)) {
+            return;
+        }
+        try {
+            Manifest manifest = readSubsystemManifest(file);
+            if (manifest == null) {
+                return;
+            }
+            String symbolicName = getSymbolicName(manifest.getMainAttributes().getValue("Subsystem-SymbolicName"));
+            String shortName = manifest.getMainAttributes().getValue("IBM-ShortName");
+            List<String> dependencies = getFeatureDependencies(manifest.getMainAttributes().getValue("Subsystem-Content"));
+            if (symbolicName != null) {
+                index.setProperty(key + ".name", symbolicName);
+            }
+            if (shortName != null) {
+                index.setProperty(key + ".shortName", shortName.trim());
+            }
+            index.setProperty(key + ".dependencies", join(dependencies));
+        } catch (IOException e) {
+            log.debug("Unable to read the feature manifest of " + file, e);
+        }
+    }
+
+    /**
+     * Remember the feature version of a runtime installation.
+     */
+    public synchronized void setFeatureVersion(File installDirectory, String version) {
+        if (isIndexable(version) && !version.equals(index.getProperty("runtime." + installDirectory.getAbsolutePath()))) {
+            index.setProperty("runtime." + installDirectory.getAbsolutePath(), version);
+            changed = true;
+        }
+    }
+
+    /**
+     * @return the version of the features last installed into the runtime, or
+     *         null
+     */
+    public synchronized String getFeatureVersion(File installDirectory) {
+        return index.getProperty("runtime." + installDirectory.getAbsolutePath());
+    }
+
+    /**
+     * Read the symbolic and short names of the features that are installed in
+     * the given feature directories, e.g. lib/features of the runtime.
+     *
+     * @param featureDirectories
+     * @return the symbolic names and the short names in lower case
+     */
+    public Set<String> getInstalledFeatures(File... featureDirectories) {
+        Set<String> installed = new HashSet<String>();
+        for (File dir : featureDirectories) {
+            File[] manifests = dir.listFiles();
+            if (manifests == null) {
+                continue;
+            }
+            for (File manifestFile : manifests) {
+                if (!manifestFile.getName().endsWith(".mf")) {
+                    continue;
+                }
+                try {
+                    InputStream in = new FileInputStream(manifestFile);
+                    try {
+                        Manifest manifest = new Manifest(in);
+                        String symbolicName = getSymbolicName(manifest.getMainAttributes().getValue("Subsystem-SymbolicName"));
+                        String shortName = manifest.getMainAttributes().getValue("IBM-ShortName");
+                        if (symbolicName != null) {
+                            installed.add(symbolicName);
+                        }
+                        if (shortName != null) {
+                            installed.add(shortName.trim().toLowerCase(Locale.ENGLISH));
+                        }
+                    } finally {
+                        in.close();
+                    }
+                } catch (IOException e) {
+                    log.debug("Unable to read the feature manifest " + manifestFile, e);
+                }
+            }
+        }
+        return installed;
+    }
+
+    /**
+     * Compute the features that the given features need, including
+     * themselves, from the indexed ESAs of a version. Features that are
+     * installed already are satisfied and left out, with their dependencies.
+     *
+     * @param features
+     *            short or symbolic feature names
+     * @param installed
+     *            the installed features, see
+     *            {@link #getInstalledFeatures(File...)}
+     * @param version
+     *            the feature version
+     * @return the coordinates groupId:artifactId:type:version of the ESAs, or
+     *         null if a feature or one of its dependencies is neither
+     *         installed nor indexed
+     */
+    public synchronized List<String> getClosure(Collection<String> features, Set<String> installed, String version) {
+        Map<String, String> bySymbolicName = new HashMap<String, String>();
+        Map<String, String> byShortName = new HashMap<String, String>();
+        String suffix = ":esa:" + version + ".file";
+        for (String property : index.stringPropertyNames()) {
+            if (property.endsWith(suffix)) {
+                String key = property.substring(0, property.length() - ".file".length());
+                String name = index.getProperty(key + ".name");
+                String shortName = index.getProperty(key + ".shortName");
+                if (name != null) {
+                    bySymbolicName.put(name, key);
+                }
+                if (shortName != null) {
+                    byShortName.put(shortName.toLowerCase(Locale.ENGLISH), key);
+                }
+            }
+        }
+
+        Set<String> closure = new LinkedHashSet<String>();
+        Deque<String> pending = new ArrayDeque<String>();
+        for (String feature : features) {
+            if (installed.contains(feature) || installed.contains(feature.toLowerCase(Locale.ENGLISH))) {
+                continue;
+            }
+            String key = byShortName.get(feature.toLowerCase(Locale.ENGLISH));
+            if (key == null) {
+                key = bySymbolicName.get(feature);
+            }
+            if (key == null) {
+                log.debug("Feature " + feature + " " + version + " is not in the ESA index");
+                return null;
+            }
+            pending.add(key);
+        }
+        while (!pending.isEmpty()) {
+            String key = pending.remove();
+            if (!closure.add(key)) {
+                continue;
+            }
+            String dependencies = index.getProperty(key + ".dependencies");
+            if (dependencies == null) {
+                return null;
+            }
+            for (String dependency : dependencies.split(",")) {
+                if (dependency.isEmpty() || installed.contains(dependency)) {
+                    continue;
+                }
+                String dependencyKey = bySymbolicName.get(dependency);
+                if (dependencyKey == null) {
+                    log.debug("Feature " + dependency + " " + version + " is not in the ESA index");
+                    return null;
+                }
+                pending.add(dependencyKey);
+            }
+        }
+        return new ArrayList<String>(closure);
+    }
+
+    /**
+     * Write the index if it changed. Entries that other builds wrote to the
+     * file since it was read are kept.
+     */
+    public synchronized void save() {
+        if (!changed) {
+            return;
+        }
+        try {
+            File parent = indexFile.getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            // another build may have written the index since it was read
+            Properties saved = load(indexFile);
+            for (String key : saved.stringPropertyNames()) {
+                if (!index.containsKey(key)) {
+                    index.setProperty(key, saved.getProperty(key));
+                }
+            }
+            // another build may read the index at the same time
+            File temp = File.createTempFile(indexFile.getName(), ".tmp", parent);
+            try {
+                OutputStream out = new FileOutputStream(temp);
+                try {
+                    index.store(out, "Generated by liberty-maven-plugin");
+                } finally {
+                    out.close();
+                }
+                Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp.toPath());
+            }
+            changed = false;
+        } catch (IOException e) {
+            log.debug("Unable to write " + indexFile, e);
+        }
+    }
+
+    private static boolean isIndexable(String version) {
+        return version != null && !version.endsWith("SNAPSHOT") && !version.startsWith("[")
+                && !version.startsWith("(");
+    }
+
+    private static String getKey(String groupId, String artifactId, String type, String version) {
+        return groupId + ":" + artifactId + ":" + type + ":" + version;
+    }
+
+    private static Manifest readSubsystemManifest(File esa) throws IOException {
+        ZipFile zip = new ZipFile(esa);
+        try {
+            ZipEntry entry = zip.getEntry(SUBSYSTEM_MANIFEST);
+            if (entry == null) {
+                return null;
+            }
+            InputStream in = zip.getInputStream(entry);
+            try {
+                return new Manifest(in);
+            } finally {
+                in.close();
+            }
+        } finally {
+            zip.close();
+        }
+    }
+
+    private static String getSymbolicName(String header) {
+        if (header == null) {
+            return null;
+        }
+        int index = header.indexOf(';');
+        return (index < 0 ? header : header.substring(0, index)).trim();
+    }
+
+    // the names of the osgi.subsystem.feature entries of a Subsystem-Content header
+    private static List<String> getFeatureDependencies(String header) {
+        List<String> dependencies = new ArrayList<String>();
+        if (header == null) {
+            return dependencies;
+        }
+        for (String clause : splitClauses(header)) {
+            String[] parts = clause.split(";");
+            boolean feature = false;
+            for (int i = 1; i < parts.length; i++) {
+                String part = parts[i].trim().replace(" ", "");
+                if (part.startsWith("type=") || part.startsWith("type:=")) {
+                    feature = part.substring(part.indexOf('=') + 1).replace("\"", "").equals(FEATURE_TYPE);
+                }
+            }
+            if (feature) {
+                dependencies.add(parts[0].trim());
+            }
+        }
+        return dependencies;
+    }
+
+    // split on the commas that are not within quotes, e.g. in a version range
+    private static List<String> splitClauses(String header) {
+        List<String> clauses = new ArrayList<String>();
+        StringBuilder clause = new StringBuilder();
+        boolean quoted = false;
+        for (char c : header.toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+            }
+            if (c == ',' && !quoted) {
+                clauses.add(clause.toString());
+                clause.setLength(0);
+            } else {
+                clause.append(c);
+            }
+        }
+        clauses.add(clause.toString());
+        return clauses;
+    }
+
+    private static String join(List<String> values) {
+        StringBuilder sb = new StringBuilder();
+        for (String value : values) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(value);
+        }
+        return sb.toString();
+    }
+}
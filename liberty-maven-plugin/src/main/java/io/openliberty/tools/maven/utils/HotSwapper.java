@@ -0,0 +1,160 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven.utils;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugin.logging.Log;
+
+import com.sun.jdi.Bootstrap;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.connect.AttachingConnector;
+import com.sun.jdi.connect.Connector;
+
+/**
+ * Replaces the bytecode of loaded classes in a JVM that was started with a
+ * JDWP agent, using JDI redefineClasses.
+ *
+ * The JVM only accepts redefinitions that change method bodies. Any other
+ * change, or a class that is not loaded yet, makes {@link #redefine(Map)}
+ * return false so that the caller can fall back to a normal update.
+ */
+public class HotSwapper {
+
+    private static final String SOCKET_ATTACH = "com.sun.jdi.SocketAttach";
+
+    private final String host;
+    private final int port;
+    private final Log log;
+
+    public HotSwapper(String host, int port, Log log) {
+        this.host = host;
+        this.port = port;
+        this.log = log;
+    }
+
+    /**
+     * @return true if JDI is available to the plugin. Before Java 9 it is in
+     *         the tools.jar of the JDK, which is added to the plugin class
+     *         realm when JDI is not found.
+     */
+    public static synchronized boolean isSupported() {
+        if (isJdiLoadable()) {
+            return true;
+        }
+        File toolsJar = new File(System.getProperty("java.home"), "../lib/tools.jar");
+        ClassLoader loader = HotSwapper.class.getClassLoader();
+        if (!toolsJar.isFile() || loader == null) {
+            return false;
+        }
+        try {
+            // the plugin class realm of Maven has a public addURL method
+            Method addURL = loader.getClass().getMethod("addURL", URL.class);
+            addURL.invoke(loader, toolsJar.toURI().toURL());
+        } catch (Exception e) {
+            return false;
+        }
+        return isJdiLoadable();
+    }
+
+    private static boolean isJdiLoadable() {
+        try {
+            Class.forName("com.sun.jdi.Bootstrap", false, HotSwapper.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Redefine classes in the target JVM. Either all classes are redefined or
+     * none are.
+     *
+     * @param classes
+     *            new bytecode keyed by binary class name
+     * @return true if the classes were redefined, false if a normal update is
+     *         needed
+     */
+    public boolean redefine(Map<String, byte[]> classes) {
+        VirtualMachine vm;
+        try {
+            vm = attach();
+        } catch (Exception e) {
+            // e.g. another debugger is attached, JDWP accepts one at a time
+            log.debug("Unable to attach to the debug port " + port + " for hot swap", e);
+            return false;
+        }
+        try {
+            if (!vm.canRedefineClasses()) {
+                log.debug("The server JVM does not support class redefinition");
+                return false;
+            }
+            Map<ReferenceType, byte[]> redefinitions = new HashMap<ReferenceType, byte[]>();
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                List<ReferenceType> types = vm.classesByName(entry.getKey());
+                if (types.isEmpty()) {
+                    // not loaded yet, it has to be loaded from the updated class file
+                    log.debug("Class " + entry.getKey() + " is not loaded, hot swap is not possible");
+                    return false;
+                }
+                for (ReferenceType type : types) {
+                    redefinitions.put(type, entry.getValue());
+                }
+            }
+            vm.redefineClasses(redefinitions);
+            return true;
+        } catch (UnsupportedOperationException e) {
+            // added or removed methods or fields, changed hierarchy or signatures
+            log.debug("Structural change, hot swap is not possible: " + e.getMessage());
+            return false;
+        } catch (RuntimeException | LinkageError e) {
+            log.debug("Hot swap failed", e);
+            return false;
+        } finally {
+            try {
+                // detach so that an IDE debugger can attach
+                vm.dispose();
+            } catch (RuntimeException e) {
+                log.debug(e);
+            }
+        }
+    }
+
+    private VirtualMachine attach() throws Exception {
+        AttachingConnector connector = null;
+        for (AttachingConnector c : Bootstrap.virtualMachineManager().attachingConnectors()) {
+            if (SOCKET_ATTACH.equals(c.name())) {
+                connector = c;
+                break;
+            }
+        }
+        if (connector == null) {
+            throw new IllegalStateException("JDI connector " + SOCKET_ATTACH + " is not available");
+        }
+        Map<String, Connector.Argument> arguments = connector.defaultArguments();
+        arguments.get("hostname").setValue(host);
+        arguments.get("port").setValue(String.valueOf(port));
+        return connector.attach(arguments);
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Console input that handles additional dev mode hotkeys.
+ *
+ * The dev mode hotkey reader consumes System.in one line at a time. This
+ * stream sits in front of it: a line that matches one of the hotkeys added
+ * here runs its action and is not passed on, any other line is passed on
+ * unchanged. The exit actions run when one of the dev mode exit commands is
+ * typed, before the command is passed on.
+ */
+public class HotkeyInputStream extends InputStream {
+
+    private static final List<String> EXIT_COMMANDS = Arrays.asList("q", "quit", "exit");
+
+    private final InputStream in;
+    private final Log log;
+    private final Map<String, Runnable> actions = new LinkedHashMap<String, Runnable>();
+    private final Map<String, String> descriptions = new LinkedHashMap<String, String>();
+    private final List<Runnable> exitActions = new ArrayList<Runnable>();
+
+    private byte[] buffer = new byte[0];
+    private int position = 0;
+    private boolean eof = false;
+
+    public HotkeyInputStream(InputStream in, Log log) {
+        this.in = in;
+        this.log = log;
+    }
+
+    /**
+     * Install a hotkey stream as System.in, or return the one that is already
+     * installed.
+     */
+    public static synchronized HotkeyInputStream install(Log log) {
+        if (System.in instanceof HotkeyInputStream) {
+            return (HotkeyInputStream) System.in;
+        }
+        HotkeyInputStream hotkeys = new HotkeyInputStream(System.in, log);
+        System.setIn(hotkeys);
+        return hotkeys;
+    }
+
+    /**
+     * @param key
+     *            the text to type followed by Enter, case insensitive
+     * @param description
+     *            what the hotkey does, e.g. "print latency percentiles"
+     * @param action
+     *            run on the console reader thread when the hotkey is typed
+     */
+    public synchronized void addHotkey(String key, String description, Runnable action) {
+        actions.put(key.toLowerCase(), action);
+        descriptions.put(key, description);
+    }
+
+    /**
+     * @param action
+     *            run on the console reader thread when dev mode is told to
+     *            exit, before the dev mode hotkey reader sees the command
+     */
+    public synchronized void addExitAction(Runnable action) {
+        exitActions.add(action);
+    }
+
+    /**
+     * Log the hotkeys handled by this stream.
+     */
+    public synchronized void printHotkeys() {
+        for (Map.Entry<String, String> entry : descriptions.entrySet()) {
+            log.info("To " + entry.getValue() + ", type '" + entry.getKey() + "' and press Enter.");
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        // only return what is buffered so a reader never blocks on a partial line
+        int count = Math.min(len, buffer.length - position);
+        System.arraycopy(buffer, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return buffer.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Read lines until there is a line to pass on.
+     *
+     * @return false at end of input
+     */
+    private boolean fill() throws IOException {
+        while (position >= buffer.length) {
+            if (eof) {
+                return false;
+            }
+            byte[] line = readLine();
+            Runnable action = getAction(line);
+            if (action != null) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    log.error("Hotkey action failed", e);
+                }
+            } else {
+                if (isExitCommand(line)) {
+                    runExitActions();
+                }
+                buffer = line;
+                position = 0;
+            }
+        }
+        return true;
+    }
+
+    private byte[] readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int c;
+        while ((c = in.read()) != -1) {
+            line.write(c);
+            if (c == '\n') {
+                return line.toByteArray();
+            }
+        }
+        eof = true;
+        return line.toByteArray();
+    }
+
+    private synchronized Runnable getAction(byte[] line) {
+        if (line.length == 0) {
+            return null;
+        }
+        return actions.get(toCommand(line));
+    }
+
+    private boolean isExitCommand(byte[] line) {
+        return line.length > 0 && EXIT_COMMANDS.contains(toCommand(line));
+    }
+
+    private void runExitActions() {
+        List<Runnable> actionsToRun;
+        synchronized (this) {
+            actionsToRun = new ArrayList<Runnable>(exitActions);
+        }
+        for (Runnable action : actionsToRun) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                log.error("Exit action failed", e);
+            }
+        }
+    }
+
+    private String toCommand(byte[] line) {
+        return new String(line, Charset.defaultCharset()).trim().toLowerCase();
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.plugin.logging.Log;
+import org.jboss.jandex.Index;
+import org.jboss.jandex.IndexWriter;
+import org.jboss.jandex.Indexer;
+
+/**
+ * Writes a Jandex annotation index, META-INF/jandex.idx, for a classes
+ * directory, so that Liberty reads the index instead of scanning the classes
+ * when applicationManager useJandex is enabled.
+ *
+ * A directory is only indexed again when its class files changed. The class
+ * files are compared by path, size and modification time with a stamp file
+ * kept in the build directory, so an unchanged directory costs a directory
+ * walk.
+ * A stale index would hide annotations from Liberty, so the index is deleted
+ * when it cannot be written.
+ */
+public class JandexIndexer {
+
+    public static final String INDEX_PATH = "META-INF/jandex.idx";
+
+    private final Log log;
+
+    public JandexIndexer(Log log) {
+        this.log = log;
+    }
+
+    /**
+     * Index the classes of a directory if they changed since the last index.
+     *
+     * @param classesDirectory
+     *            e.g. target/classes
+     * @param stampFile
+     *            where the state of the indexed classes is kept, e.g. in the
+     *            build directory of the project
+     * @return true if the index was written
+     */
+    public boolean index(File classesDirectory, File stampFile) {
+        File indexFile = new File(classesDirectory, INDEX_PATH);
+        List<String> classes = new ArrayList<String>();
+        findClasses(classesDirectory, "", classes);
+        if (classes.isEmpty()) {
+            return false;
+        }
+        Collections.sort(classes);
+
+        DigestUtil digest = new DigestUtil();
+        for (String path : classes) {
+            File file = new File(classesDirectory, path);
+            digest.update(path).update(Long.toString(file.length())).update(Long.toString(file.lastModified()));
+        }
+        String stamp = digest.getValue();
+        if (indexFile.isFile() && stamp.equals(readStamp(stampFile))) {
+            log.debug("Jandex index of " + classesDirectory + " is up to date");
+            return false;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            Indexer indexer = new Indexer();
+            for (String path : classes) {
+                InputStream in = new FileInputStream(new File(classesDirectory, path));
+                try {
+                    indexer.index(in);
+                } finally {
+                    in.close();
+                }
+            }
+            Index index = indexer.complete();
+
+            File parent = indexFile.getParentFile();
+            if (!parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Unable to create directory " + parent);
+            }
+            File temp = new File(parent, "." + indexFile.getName() + ".tmp");
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                new IndexWriter(out).write(index);
+            } finally {
+                out.close();
+            }
+            Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            writeStamp(stampFile, stamp);
+        } catch (Exception e) {
+            // no index is better than a stale one, Liberty falls back to scanning
+            log.warn("Unable to write the Jandex index for " + classesDirectory + ": " + e.getMessage());
+            log.debug(e);
+            indexFile.delete();
+            stampFile.delete();
+            return false;
+        }
+        log.debug("Indexed " + classes.size() + " classes of " + classesDirectory + " in "
+                + (System.currentTimeMillis() - start) + " ms");
+        return true;
+    }
+
+    private void findClasses(File dir, String relativePath, List<String> classes) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String path = relativePath + file.getName();
+            if (file.isDirectory()) {
+                findClasses(file, path + "/", classes);
+            } else if (file.getName().endsWith(".class")) {
+                classes.add(path);
+            }
+        }
+    }
+
+    private String readStamp(File stampFile) {
+        try {
+            return new String(Files.readAllBytes(stampFile.toPath()), StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writeStamp(File stampFile, String stamp) throws IOException {
+        File parent = stampFile.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        Files.write(stampFile.toPath(), stamp.getBytes(StandardCharsets.UTF_8));
+    }
+}
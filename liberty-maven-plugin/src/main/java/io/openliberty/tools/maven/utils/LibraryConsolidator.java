@@ -0,0 +1,249 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.maven.plugin.logging.Log;
+import org.jboss.jandex.IndexWriter;
+import org.jboss.jandex.Indexer;
+
+/**
+ * Merges the third-party library jars of a loose WAR into a single jar, so
+ * that Liberty opens and searches one archive instead of one per dependency.
+ *
+ * The merged jar is named after a digest of the jars it contains, so it is
+ * only written when the set of dependencies changes. When an index is
+ * requested, a Jandex index of the merged classes is written into the jar.
+ *
+ * Jars whose meaning depends on being a separate archive are not merged: signed
+ * jars, multi-release jars, and jars with a META-INF/beans.xml or
+ * META-INF/web-fragment.xml. Service files are concatenated, otherwise the
+ * first jar that contains an entry wins, like on a class path.
+ */
+public class LibraryConsolidator {
+
+    private static final String FILE_PREFIX = "lib-";
+    // increase when the layout of the merged jar changes
+    private static final String FORMAT = "1";
+
+    // whether a jar can be merged, by path, size and modification time
+    private static final Map<String, Boolean> mergeable = new HashMap<String, Boolean>();
+
+    private final File directory;
+    private final boolean index;
+    private final Log log;
+
+    /**
+     * @param directory
+     *            where the merged jar is written, e.g. target/liberty-libs
+     * @param index
+     *            whether to write a Jandex index into the merged jar
+     * @param log
+     */
+    public LibraryConsolidator(File directory, boolean index, Log log) {
+        this.directory = directory;
+        this.index = index;
+        this.log = log;
+    }
+
+    /**
+     * @return true if the jar can be merged with other jars
+     */
+    public boolean canConsolidate(File jar) throws IOException {
+        String key = DigestUtil.getFileKey(jar);
+        synchronized (mergeable) {
+            Boolean result = mergeable.get(key);
+            if (result != null) {
+                return result;
+            }
+        }
+        boolean result = true;
+        ZipFile zip = new ZipFile(jar);
+        try {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (result && entries.hasMoreElements()) {
+                String name = entries.nextElement().getName().toUpperCase();
+                if (name.startsWith("META-INF/") && name.indexOf('/', "META-INF/".length()) < 0
+                        && (name.endsWith(".SF") || name.endsWith(".DSA") || name.endsWith(".RSA")
+                                || name.endsWith(".EC"))) {
+                    result = false;
+                } else if (name.startsWith("META-INF/VERSIONS/") || name.equals("META-INF/BEANS.XML")
+                        || name.equals("META-INF/WEB-FRAGMENT.XML")) {
+                    result = false;
+                }
+            }
+        } finally {
+            zip.close();
+        }
+        if (!result) {
+            log.debug(jar.getName() + " is kept as a separate library");
+        }
+        synchronized (mergeable) {
+            mergeable.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Get the merged jar for the given jars, writing it if it does not exist
+     * yet. Merged jars for other sets of jars are deleted.
+     *
+     * @param jars
+     *            the jars to merge, in class path order
+     * @return the merged jar
+     */
+    public File consolidate(List<File> jars) throws IOException {
+        DigestUtil digest = new DigestUtil().update(FORMAT).update(Boolean.toString(index));
+        for (File jar : jars) {
+            // released jars in the local repository do not change, snapshots get a new modification time
+            digest.update(DigestUtil.getFileKey(jar));
+        }
+        File merged = new File(directory, FILE_PREFIX + digest.getValue().substring(0, 20) + ".jar");
+        if (merged.isFile()) {
+            log.debug("Merged library " + merged.getName() + " is up to date");
+            return merged;
+        }
+
+        long start = System.currentTimeMillis();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory);
+        }
+        File temp = new File(directory, "." + merged.getName() + ".tmp");
+        try {
+            write(jars, temp);
+            Files.move(temp.toPath(), merged.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+        log.debug("Merged " + jars.size() + " libraries into " + merged.getName() + " in "
+                + (System.currentTimeMillis() - start) + " ms");
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().startsWith(FILE_PREFIX) && !file.equals(merged)) {
+                    file.delete();
+                }
+            }
+        }
+        return merged;
+    }
+
+    private void write(List<File> jars, File target) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Created-By", "liberty-maven-plugin");
+
+        Set<String> written = new HashSet<String>();
+        Map<String, ByteArrayOutputStream> services = new LinkedHashMap<String, ByteArrayOutputStream>();
+        Indexer indexer = index ? new Indexer() : null;
+
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(target), manifest);
+        try {
+            written.add("META-INF/");
+            written.add("META-INF/MANIFEST.MF");
+            for (File jar : jars) {
+                ZipFile zip = new ZipFile(jar);
+                try {
+                    Enumeration<? extends ZipEntry> entries = zip.entries();
+                    while (entries.hasMoreElements()) {
+                        ZipEntry entry = entries.nextElement();
+                        String name = entry.getName();
+                        if (name.startsWith("META-INF/services/") && !entry.isDirectory()) {
+                            ByteArrayOutputStream service = services.get(name);
+                            if (service == null) {
+                                service = new ByteArrayOutputStream();
+                                services.put(name, service);
+                            }
+                            service.write(read(zip, entry));
+                            service.write('\n');
+                            continue;
+                        }
+                        if (name.equals("META-INF/INDEX.LIST") || name.equals(JandexIndexer.INDEX_PATH)
+                                || name.endsWith("module-info.class") || !written.add(name)) {
+                            continue;
+                        }
+                        out.putNextEntry(new ZipEntry(name));
+                        if (!entry.isDirectory()) {
+                            byte[] bytes = read(zip, entry);
+                            out.write(bytes);
+                            if (indexer != null && name.endsWith(".class")) {
+                                try {
+                                    indexer.index(new ByteArrayInputStream(bytes));
+                                } catch (Exception e) {
+                                    // an incomplete index would hide annotations, let Liberty scan instead
+                                    log.debug("Unable to index " + name + " of " + jar.getName(), e);
+                                    indexer = null;
+                                }
+                            }
+                        }
+                        out.closeEntry();
+                    }
+                } finally {
+                    zip.close();
+                }
+            }
+            for (Map.Entry<String, ByteArrayOutputStream> service : services.entrySet()) {
+                out.putNextEntry(new ZipEntry(service.getKey()));
+                service.getValue().writeTo(out);
+                out.closeEntry();
+            }
+            if (indexer != null) {
+                out.putNextEntry(new ZipEntry(JandexIndexer.INDEX_PATH));
+                new IndexWriter(out).write(indexer.complete());
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private byte[] read(ZipFile zip, ZipEntry entry) throws IOException {
+        InputStream in = zip.getInputStream(entry);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(entry.getSize() > 0 ? (int) entry.getSize() : 8192);
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
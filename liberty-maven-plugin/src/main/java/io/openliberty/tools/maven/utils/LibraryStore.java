@@ -0,0 +1,201 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Places library jars in a copy directory, e.g. the copyLibsDirectory of a
+ * loose application, from a content-addressed store.
+ *
+ * Each jar is stored once under its SHA-256 digest and linked into the copy
+ * directory under its expected name, so the modules of a reactor that copy
+ * the same jar share one file on disk. A jar that is already in place is not
+ * touched. Hard links are used where the file system supports them, otherwise
+ * the jar is copied. The stored files are never written again, so a link
+ * cannot change under Liberty.
+ *
+ * The jars placed for each owner, e.g. a project, are listed in the copy
+ * directory, so that jars no owner references any more can be removed without
+ * touching other files in the directory.
+ */
+public class LibraryStore {
+
+    private static final String OWNERS_DIRECTORY = ".liberty-libs";
+
+    private final File storeDirectory;
+    private final Log log;
+
+    /**
+     * @param storeDirectory
+     *            the content-addressed store, shared by the modules of a
+     *            reactor
+     * @param log
+     */
+    public LibraryStore(File storeDirectory, Log log) {
+        this.storeDirectory = storeDirectory;
+        this.log = log;
+    }
+
+    /**
+     * Make the target a copy of the jar.
+     *
+     * @return true if the target was created or replaced, false if it was
+     *         already in place
+     */
+    public boolean place(File jar, File target) throws IOException {
+        File stored = store(jar);
+        if (target.exists() && Files.isSameFile(stored.toPath(), target.toPath())) {
+            return false;
+        }
+        if (target.isFile() && target.length() == stored.length()
+                && DigestUtil.getCachedDigest(target).equals(DigestUtil.getCachedDigest(stored))) {
+            // copied, e.g. on a file system without hard links
+            return false;
+        }
+        File parent = target.getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory " + parent);
+        }
+        File temp = new File(parent, "." + target.getName() + ".tmp");
+        try {
+            Files.deleteIfExists(temp.toPath());
+            try {
+                Files.createLink(temp.toPath(), stored.toPath());
+            } catch (IOException | UnsupportedOperationException e) {
+                log.debug("Unable to link " + stored + ", copying it", e);
+                Files.copy(stored.toPath(), temp.toPath());
+            }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+        log.debug("Placed " + jar.getName() + " in " + parent);
+        return true;
+    }
+
+    /**
+     * Record the jars that an owner placed in a copy directory, and delete the
+     * jars that the owner placed before but no owner references now.
+     *
+     * @param directory
+     *            the copy directory
+     * @param owner
+     *            e.g. the groupId and artifactId of a project
+     * @param placed
+     *            the jars placed in the directory for the owner
+     */
+    public void retainOnly(File directory, String owner, Collection<File> placed) throws IOException {
+        File ownersDirectory = new File(directory, OWNERS_DIRECTORY);
+        File ownerFile = new File(ownersDirectory, owner.replaceAll("[^A-Za-z0-9._-]", "_") + ".list");
+
+        Set<String> previous = readList(ownerFile);
+        Set<String> current = new TreeSet<String>();
+        for (File file : placed) {
+            current.add(file.getName());
+        }
+        if (!ownersDirectory.exists() && !ownersDirectory.mkdirs()) {
+            throw new IOException("Unable to create directory " + ownersDirectory);
+        }
+        Files.write(ownerFile.toPath(), new ArrayList<String>(current), StandardCharsets.UTF_8);
+
+        previous.removeAll(current);
+        if (previous.isEmpty()) {
+            return;
+        }
+        File[] ownerFiles = ownersDirectory.listFiles();
+        if (ownerFiles != null) {
+            for (File other : ownerFiles) {
+                if (!other.equals(ownerFile)) {
+                    previous.removeAll(readList(other));
+                }
+            }
+        }
+        for (String name : previous) {
+            File file = new File(directory, name);
+            if (file.delete()) {
+                log.debug("Removed unreferenced library " + file);
+            }
+        }
+        removeUnlinked();
+    }
+
+    // store the jar under its digest if it is not stored yet
+    private File store(File jar) throws IOException {
+        String digest = DigestUtil.getCachedDigest(jar);
+        File stored = new File(storeDirectory, digest + ".jar");
+        if (stored.isFile()) {
+            return stored;
+        }
+        if (!storeDirectory.exists() && !storeDirectory.mkdirs()) {
+            throw new IOException("Unable to create directory " + storeDirectory);
+        }
+        File temp = File.createTempFile(digest, ".tmp", storeDirectory);
+        try {
+            Files.copy(jar.toPath(), temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp.toPath(), stored.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+        return stored;
+    }
+
+    // delete stored jars that are not linked from any copy directory, where the file system counts links
+    private void removeUnlinked() {
+        File[] stored = storeDirectory.listFiles();
+        if (stored == null) {
+            return;
+        }
+        for (File file : stored) {
+            try {
+                Object links = Files.getAttribute(file.toPath(), "unix:nlink");
+                if (links instanceof Integer && (Integer) links == 1 && file.delete()) {
+                    log.debug("Removed unreferenced stored library " + file.getName());
+                }
+            } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+                // link counts are not available, keep the store
+                return;
+            }
+        }
+    }
+
+    private Set<String> readList(File file) throws IOException {
+        Set<String> names = new HashSet<String>();
+        if (file.isFile()) {
+            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            for (String line : lines) {
+                if (!line.trim().isEmpty()) {
+                    names.add(line.trim());
+                }
+            }
+        }
+        return names;
+    }
+}
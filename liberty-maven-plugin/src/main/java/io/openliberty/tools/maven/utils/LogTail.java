@@ -0,0 +1,306 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven.utils;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Waits for messages in a server log, e.g. the CWWKZ0001I application started
+ * messages.
+ *
+ * Reading starts at a bookmark, so that messages from before an operation are
+ * not mistaken for its result, and continues from where the previous read
+ * stopped. Several expressions are matched in one pass over the new lines. The
+ * reader wakes up on file system events for the log directory rather than
+ * polling at a fixed interval, with a short poll as a fallback for platforms
+ * where the watch service itself polls. When the log is rolled over, the rest
+ * of the rolled over file is read before the new log.
+ *
+ * A rolled over log is recognized by its file key where the file system has
+ * one. Elsewhere, e.g. on Windows, by its creation time or by the start of
+ * the file, as the creation time can be carried over to a new file with the
+ * same name.
+ */
+public class LogTail {
+
+    // fallback when no file system event arrives, e.g. when the log directory does not exist yet
+    private static final long MAX_WAIT_MILLIS = 500;
+
+    // enough of the start of the log to get past the header to the first time stamps
+    private static final int HEAD_BYTES = 4096;
+
+    private final File logFile;
+    private final Log log;
+
+    private long offset = 0;
+    private Object fileKey;
+    private FileTime creationTime;
+    private byte[] head;
+
+    /**
+     * Create a tail that reads the log from the start, call {@link #bookmark()}
+     * to skip the existing content.
+     *
+     * @param logFile
+     *            e.g. the messages.log of the server
+     * @param log
+     */
+    public LogTail(File logFile, Log log) {
+        this.logFile = logFile;
+        this.log = log;
+    }
+
+    /**
+     * Skip everything that is in the log now.
+     *
+     * @return this
+     */
+    public LogTail bookmark() {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(logFile.toPath(), BasicFileAttributes.class);
+            offset = attributes.size();
+            head = null;
+            remember(attributes);
+        } catch (IOException e) {
+            // not created yet
+            offset = 0;
+            fileKey = null;
+            creationTime = null;
+            head = null;
+        }
+        return this;
+    }
+
+    /**
+     * Wait until a line matches the regular expression.
+     *
+     * @return true if a line matched before the timeout
+     */
+    public boolean waitFor(String regex, long timeoutMillis) {
+        return waitFor(Collections.singleton(regex), timeoutMillis).isEmpty();
+    }
+
+    /**
+     * Wait until each of the regular expressions matched a line.
+     *
+     * @param regexes
+     * @param timeoutMillis
+     * @return the expressions that did not match before the timeout, empty if
+     *         all matched
+     */
+    public Set<String> waitFor(Collection<String> regexes, long timeoutMillis) {
+        Map<String, Pattern> pending = new LinkedHashMap<String, Pattern>();
+        for (String regex : regexes) {
+            pending.put(regex, Pattern.compile(regex));
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        WatchService watcher = null;
+        try {
+            while (true) {
+                read(pending);
+                long remaining = deadline - System.currentTimeMillis();
+                if (pending.isEmpty() || remaining <= 0) {
+                    break;
+                }
+                if (watcher == null) {
+                    watcher = watch();
+                }
+                long wait = Math.min(remaining, MAX_WAIT_MILLIS);
+                if (watcher != null) {
+                    WatchKey key = watcher.poll(wait, TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        key.pollEvents();
+                        key.reset();
+                    }
+                } else {
+                    Thread.sleep(wait);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (watcher != null) {
+                try {
+                    watcher.close();
+                } catch (IOException e) {
+                    log.debug(e);
+                }
+            }
+        }
+        return new LinkedHashSet<String>(pending.keySet());
+    }
+
+    private WatchService watch() {
+        File dir = logFile.getParentFile();
+        if (!dir.isDirectory()) {
+            return null;
+        }
+        try {
+            WatchService watcher = FileSystems.getDefault().newWatchService();
+            dir.toPath().register(watcher, ENTRY_CREATE, ENTRY_MODIFY);
+            return watcher;
+        } catch (IOException e) {
+            log.debug("Unable to watch " + dir, e);
+            return null;
+        }
+    }
+
+    private void read(Map<String, Pattern> pending) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(logFile.toPath(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            // not created yet
+            return;
+        }
+        boolean replaced = isReplaced(attributes);
+        if (replaced || attributes.size() < offset) {
+            // rolled over, finish the old file if it can be found
+            File rolled = replaced ? findRolledFile() : null;
+            if (rolled != null) {
+                read(rolled, pending);
+            }
+            log.debug(logFile + " was rolled over");
+            offset = 0;
+            head = null;
+        }
+        remember(attributes);
+        read(logFile, pending);
+    }
+
+    private void remember(BasicFileAttributes attributes) {
+        fileKey = attributes.fileKey();
+        creationTime = attributes.creationTime();
+        if (head == null || head.length < HEAD_BYTES) {
+            head = readHead(logFile, HEAD_BYTES);
+        }
+    }
+
+    private boolean isReplaced(BasicFileAttributes attributes) {
+        Object key = attributes.fileKey();
+        if (fileKey != null || key != null) {
+            return fileKey != null && key != null && !fileKey.equals(key);
+        }
+        // no file keys, the creation time is only meaningful here
+        if (creationTime != null && !creationTime.equals(attributes.creationTime())) {
+            return true;
+        }
+        return head != null && !startsWith(logFile, head);
+    }
+
+    private File findRolledFile() {
+        File[] files = logFile.getParentFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.equals(logFile)) {
+                    continue;
+                }
+                try {
+                    if (fileKey != null) {
+                        if (fileKey.equals(Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey())) {
+                            return file;
+                        }
+                    } else if (head != null && head.length > 0 && startsWith(file, head)) {
+                        return file;
+                    }
+                } catch (IOException e) {
+                    // deleted in the meantime
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean startsWith(File file, byte[] start) {
+        byte[] bytes = readHead(file, start.length);
+        return bytes != null && Arrays.equals(bytes, start);
+    }
+
+    // the first bytes of the file, fewer if the file is shorter, or null if it cannot be read
+    private byte[] readHead(File file, int length) {
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                byte[] bytes = new byte[(int) Math.min(length, raf.length())];
+                raf.readFully(bytes);
+                return bytes;
+            } finally {
+                raf.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void read(File file, Map<String, Pattern> pending) {
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                long length = raf.length();
+                if (length <= offset) {
+                    return;
+                }
+                byte[] bytes = new byte[(int) (length - offset)];
+                raf.seek(offset);
+                raf.readFully(bytes);
+                // only complete lines are consumed, a partial last line is read again
+                int end = bytes.length;
+                while (end > 0 && bytes[end - 1] != '\n') {
+                    end--;
+                }
+                offset += end;
+                if (end == 0 || pending.isEmpty()) {
+                    return;
+                }
+                for (String line : new String(bytes, 0, end, StandardCharsets.UTF_8).split("\r?\n")) {
+                    for (Iterator<Pattern> it = pending.values().iterator(); it.hasNext();) {
+                        if (it.next().matcher(line).find()) {
+                            it.remove();
+                        }
+                    }
+                }
+            } finally {
+                raf.close();
+            }
+        } catch (IOException e) {
+            log.debug("Unable to read " + file, e);
+        }
+    }
+}
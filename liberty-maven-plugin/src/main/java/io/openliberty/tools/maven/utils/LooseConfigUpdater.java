@@ -0,0 +1,191 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven.utils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.apache.maven.plugin.logging.Log;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import io.openliberty.tools.common.plugins.config.LooseConfigData;
+
+/**
+ * Updates a deployed loose application file in place.
+ *
+ * Deleting and rewriting the loose application file makes Liberty remove and
+ * add the application. Instead, the new loose configuration is compared with
+ * the deployed file entry by entry, where an entry is an archive, dir or file
+ * element identified by its attributes. Only added and removed entries are
+ * applied to the deployed document, and the file is not written at all when
+ * nothing changed.
+ */
+public class LooseConfigUpdater {
+
+    private final Log log;
+    private int added;
+    private int removed;
+
+    public LooseConfigUpdater(Log log) {
+        this.log = log;
+    }
+
+    /**
+     * @param config
+     *            the loose configuration of the application
+     * @param looseConfigFile
+     *            the deployed loose application file
+     * @return true if the file was created or changed
+     */
+    public boolean update(LooseConfigData config, File looseConfigFile) throws Exception {
+        if (!looseConfigFile.exists()) {
+            File temp = getTempFile(looseConfigFile);
+            config.toXmlFile(temp);
+            move(temp, looseConfigFile);
+            return true;
+        }
+
+        Document deployed;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setIgnoringComments(true);
+            deployed = factory.newDocumentBuilder().parse(looseConfigFile);
+        } catch (Exception e) {
+            // not a loose application file we can patch, replace it
+            log.debug("Unable to read " + looseConfigFile + ", replacing it", e);
+            File temp = getTempFile(looseConfigFile);
+            config.toXmlFile(temp);
+            move(temp, looseConfigFile);
+            return true;
+        }
+
+        added = 0;
+        removed = 0;
+        Element root = config.getDocumentRoot();
+        if (!getKey(root).equals(getKey(deployed.getDocumentElement()))) {
+            deployed.replaceChild(deployed.importNode(root, true), deployed.getDocumentElement());
+            added++;
+        } else {
+            merge(deployed, deployed.getDocumentElement(), root);
+        }
+
+        if (added == 0 && removed == 0) {
+            log.debug("Loose application " + looseConfigFile.getName() + " is unchanged");
+            return false;
+        }
+        log.debug("Updating loose application " + looseConfigFile.getName() + ": " + added + " entries added, "
+                + removed + " entries removed");
+        File temp = getTempFile(looseConfigFile);
+        write(deployed, temp);
+        move(temp, looseConfigFile);
+        return true;
+    }
+
+    /**
+     * Make the children of the deployed element match the children of the new
+     * element, keeping the deployed order for entries that did not change.
+     */
+    private void merge(Document deployedDoc, Element deployed, Element update) {
+        Map<String, Element> deployedChildren = getChildren(deployed);
+        Map<String, Element> updateChildren = getChildren(update);
+
+        for (Map.Entry<String, Element> entry : deployedChildren.entrySet()) {
+            if (!updateChildren.containsKey(entry.getKey())) {
+                log.debug("Removed loose application entry " + entry.getKey());
+                deployed.removeChild(entry.getValue());
+                removed++;
+            }
+        }
+        for (Map.Entry<String, Element> entry : updateChildren.entrySet()) {
+            Element existing = deployedChildren.get(entry.getKey());
+            if (existing == null) {
+                log.debug("Added loose application entry " + entry.getKey());
+                deployed.appendChild(deployedDoc.importNode(entry.getValue(), true));
+                added++;
+            } else {
+                merge(deployedDoc, existing, entry.getValue());
+            }
+        }
+    }
+
+    private Map<String, Element> getChildren(Element element) {
+        Map<String, Element> children = new LinkedHashMap<String, Element>();
+        NodeList nodes = element.getChildNodes();
+        List<Element> duplicates = new ArrayList<Element>();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node node = nodes.item(i);
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                Element child = (Element) node;
+                if (children.put(getKey(child), child) != null) {
+                    duplicates.add(child);
+                }
+            }
+        }
+        if (!duplicates.isEmpty()) {
+            // the same entry twice, keep one
+            for (Element duplicate : duplicates) {
+                element.removeChild(duplicate);
+                removed++;
+            }
+            return getChildren(element);
+        }
+        return children;
+    }
+
+    private String getKey(Element element) {
+        Map<String, String> attributes = new TreeMap<String, String>();
+        NamedNodeMap map = element.getAttributes();
+        for (int i = 0; i < map.getLength(); i++) {
+            Node attribute = map.item(i);
+            attributes.put(attribute.getNodeName(), attribute.getNodeValue());
+        }
+        return element.getTagName() + attributes;
+    }
+
+    private void write(Document doc, File file) throws Exception {
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+        transformer.transform(new DOMSource(doc), new StreamResult(file));
+    }
+
+    private File getTempFile(File file) {
+        return new File(file.getParentFile(), "." + file.getName() + ".tmp");
+    }
+
+    private void move(File source, File target) throws Exception {
+        // a single rename, Liberty never sees a partially written file
+        Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Watches the source directories of a set of modules and reports which files
+ * of each module changed once the files have been quiet for a while.
+ *
+ * @param <T>
+ *            the module type
+ */
+public class ModuleWatcher<T> extends DirectoryWatcher<T> {
+
+    /**
+     * Notified on the watcher thread, one module at a time.
+     */
+    public interface Listener<T> {
+        /**
+         * @param module
+         *            the module that changed
+         * @param changedFiles
+         *            files and directories that were created, modified or
+         *            deleted
+         * @param firstEventMillis
+         *            time of the first file event of the change
+         */
+        void moduleChanged(T module, Set<File> changedFiles, long firstEventMillis);
+    }
+
+    private final long quietMillis;
+    private final Listener<T> listener;
+
+    private final Map<T, List<File>> modules = new LinkedHashMap<T, List<File>>();
+    private final Map<T, Set<File>> changed = new LinkedHashMap<T, Set<File>>();
+    private long firstEventMillis;
+
+    /**
+     * @param quietMillis
+     *            time without file events before changed modules are reported
+     * @param listener
+     * @param log
+     */
+    public ModuleWatcher(long quietMillis, Listener<T> listener, Log log) {
+        super("liberty-dev-module-watcher", log);
+        this.quietMillis = quietMillis;
+        this.listener = listener;
+    }
+
+    /**
+     * Add a module and the directories to watch for it. Directories that do not
+     * exist are ignored.
+     */
+    public void addModule(T module, List<File> directories) {
+        List<File> dirs = modules.get(module);
+        if (dirs == null) {
+            dirs = new ArrayList<File>();
+            modules.put(module, dirs);
+        }
+        dirs.addAll(directories);
+    }
+
+    /**
+     * @return true if no module was added
+     */
+    public boolean isEmpty() {
+        return modules.isEmpty();
+    }
+
+    /**
+     * Start watching on a daemon thread.
+     */
+    @Override
+    public synchronized void start() throws IOException {
+        for (Map.Entry<T, List<File>> entry : modules.entrySet()) {
+            for (File dir : entry.getValue()) {
+                watch(dir, entry.getKey(), true);
+            }
+        }
+        super.start();
+    }
+
+    @Override
+    protected void fileChanged(T module, File file) {
+        if (changed.isEmpty()) {
+            firstEventMillis = System.currentTimeMillis();
+        }
+        Set<File> files = changed.get(module);
+        if (files == null) {
+            files = new LinkedHashSet<File>();
+            changed.put(module, files);
+        }
+        files.add(file);
+    }
+
+    // block until the first event, then collect events until the modules have been quiet
+    @Override
+    protected long getPollMillis() {
+        return changed.isEmpty() ? -1 : quietMillis;
+    }
+
+    @Override
+    protected void idle() {
+        for (Map.Entry<T, Set<File>> entry : changed.entrySet()) {
+            T module = entry.getKey();
+            try {
+                listener.moduleChanged(module, entry.getValue(), firstEventMillis);
+            } catch (RuntimeException e) {
+                log.error("Unable to process changes in " + module, e);
+            }
+        }
+        changed.clear();
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.BuildPluginManager;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.descriptor.MojoDescriptor;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.configuration.PlexusConfiguration;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+/**
+ * Plugin executions that are resolved once and reused for every goal that dev
+ * mode runs repeatedly.
+ *
+ * For each plugin the descriptor is loaded once, which resolves a "RELEASE" or
+ * "LATEST" version to a fixed version, and its class realm is created. For
+ * each goal the mojo descriptor, the default configuration and the validated
+ * goal configuration from the POM are kept. The plan must be invalidated when
+ * the POM changes.
+ */
+public class MojoExecutionPlan {
+
+    private static final String EXECUTION_ID = "default-cli";
+
+    private final BuildPluginManager pluginManager;
+    private final Log log;
+
+    private final Map<String, PluginDescriptor> plugins = new HashMap<String, PluginDescriptor>();
+    private final Map<String, Xpp3Dom> defaultConfigs = new HashMap<String, Xpp3Dom>();
+    // keyed by project, plugin and goal, the same plugin has a different configuration in each project
+    private final Map<String, Xpp3Dom> goalConfigs = new HashMap<String, Xpp3Dom>();
+
+    public MojoExecutionPlan(BuildPluginManager pluginManager, Log log) {
+        this.pluginManager = pluginManager;
+        this.log = log;
+    }
+
+    /**
+     * Get the validated configuration of a goal from the POM, see
+     * {@link ExecuteMojoUtil#getPluginGoalConfig(Plugin, String, Log)}.
+     *
+     * @param plugin
+     * @param goal
+     * @param project
+     *            the project that the plugin is configured in
+     * @return a copy that the caller may change
+     */
+    public synchronized Xpp3Dom getPluginGoalConfig(Plugin plugin, String goal, MavenProject project) {
+        String key = project.getId() + "|" + plugin.getKey() + ":" + goal;
+        Xpp3Dom config = goalConfigs.get(key);
+        if (config == null) {
+            config = ExecuteMojoUtil.getPluginGoalConfig(plugin, goal, log);
+            goalConfigs.put(key, config);
+        }
+        return new Xpp3Dom(config);
+    }
+
+    /**
+     * Run a goal with the given configuration, merged with the defaults of the
+     * goal.
+     *
+     * @param plugin
+     *            the plugin, a "RELEASE" or "LATEST" version is resolved the
+     *            first time only
+     * @param goal
+     * @param config
+     * @param project
+     *            the project to run the goal on
+     * @param session
+     *            a session with the project as current project
+     */
+    public void execute(Plugin plugin, String goal, Xpp3Dom config, MavenProject project, MavenSession session)
+            throws MojoExecutionException {
+        MojoExecution execution;
+        synchronized (this) {
+            execution = getMojoExecution(getPluginDescriptor(plugin, project, session), goal, config);
+        }
+        try {
+            pluginManager.executeMojo(session, execution);
+        } catch (Exception e) {
+            // same as mojo-executor so that callers can check for a MojoFailureException cause
+            throw new MojoExecutionException("Unable to execute mojo", e);
+        }
+    }
+
+    /**
+     * Get an execution of a goal of a plugin that is already loaded, e.g. to
+     * configure a mojo of the running plugin.
+     *
+     * @param pluginDescriptor
+     * @param goal
+     * @param config
+     *            the configuration, merged with the defaults of the goal
+     */
+    public synchronized MojoExecution getMojoExecution(PluginDescriptor pluginDescriptor, String goal, Xpp3Dom config)
+            throws MojoExecutionException {
+        MojoDescriptor mojoDescriptor = pluginDescriptor.getMojo(goal);
+        if (mojoDescriptor == null) {
+            throw new MojoExecutionException("Could not find goal '" + goal + "' in plugin " + pluginDescriptor.getId());
+        }
+        String key = pluginDescriptor.getId() + ":" + goal;
+        Xpp3Dom defaultConfig = defaultConfigs.get(key);
+        if (defaultConfig == null) {
+            defaultConfig = toXpp3Dom(mojoDescriptor.getMojoConfiguration());
+            defaultConfigs.put(key, defaultConfig);
+        }
+        MojoExecution execution = new MojoExecution(mojoDescriptor, EXECUTION_ID, MojoExecution.Source.CLI);
+        execution.setConfiguration(Xpp3Dom.mergeXpp3Dom(config, new Xpp3Dom(defaultConfig)));
+        return execution;
+    }
+
+    /**
+     * Forget everything, e.g. after the POM changed.
+     */
+    public synchronized void invalidate() {
+        plugins.clear();
+        defaultConfigs.clear();
+        goalConfigs.clear();
+    }
+
+    private PluginDescriptor getPluginDescriptor(Plugin plugin, MavenProject project, MavenSession session)
+            throws MojoExecutionException {
+        PluginDescriptor descriptor = plugins.get(plugin.getId());
+        if (descriptor == null) {
+            try {
+                descriptor = pluginManager.loadPlugin(plugin, project.getRemotePluginRepositories(),
+                        session.getRepositorySession());
+                // create the class realm now rather than on the first execution
+                pluginManager.getPluginRealm(session, descriptor);
+            } catch (Exception e) {
+                throw new MojoExecutionException("Unable to load plugin " + plugin.getKey(), e);
+            }
+            log.debug("Using " + descriptor.getId() + " for " + plugin.getKey() + ":" + plugin.getVersion());
+            plugins.put(plugin.getId(), descriptor);
+        }
+        return descriptor;
+    }
+
+    private static Xpp3Dom toXpp3Dom(PlexusConfiguration config) {
+        Xpp3Dom result = new Xpp3Dom(config.getName());
+        result.setValue(config.getValue(null));
+        for (String name : config.getAttributeNames()) {
+            result.setAttribute(name, config.getAttribute(name, null));
+        }
+        for (PlexusConfiguration child : config.getChildren()) {
+            result.addChild(toXpp3Dom(child));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,456 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven.utils;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Avoids thinning a Spring Boot application again when its libraries did not
+ * change.
+ *
+ * Digests of the library entries and of the other entries of the uber JAR are
+ * taken from the zip central directory, so nothing is decompressed. When
+ * neither changed, the thin application is left alone. When only the
+ * application classes changed, the thin application is rewritten from the
+ * uber JAR with the library index of the previous thin application, and the
+ * shared library cache is not touched. Only a change of the libraries requires
+ * the springBootUtility thin command, which adds the libraries that are not in
+ * the cache yet.
+ *
+ * The libraries that the thin command added to the shared cache for this
+ * application are recorded. Once no application references one of them any
+ * more, it is removed from the cache. Libraries that were in the cache before,
+ * e.g. added by another build or by hand, are never removed.
+ */
+public class SpringBootThinner {
+
+    public enum Result {
+        UNCHANGED, APPLICATION_UPDATED, THIN_REQUIRED
+    }
+
+    public static final String LIB_INDEX = "META-INF/spring.lib.index";
+
+    private static final String[] LIB_PREFIXES = { "BOOT-INF/lib/", "WEB-INF/lib/", "WEB-INF/lib-provided/" };
+
+    // the file types that an application in apps or dropins/spring can reference libraries from
+    private static final String[] APP_SUFFIXES = { ".jar", ".war", ".spr", ".xml" };
+
+    private final File stateFile;
+    private final Log log;
+
+    private String libDigest;
+    private String appDigest;
+
+    /**
+     * @param stateFile
+     *            where the digests of the last thinned uber JAR are kept, e.g.
+     *            in the build directory
+     * @param log
+     */
+    public SpringBootThinner(File stateFile, Log log) {
+        this.stateFile = stateFile;
+        this.log = log;
+    }
+
+    /**
+     * Update the thin application if that can be done without the thin command.
+     *
+     * @param fatJar
+     *            the uber JAR
+     * @param thinJar
+     *            the deployed thin application
+     * @return {@link Result#THIN_REQUIRED} if the thin command must be run,
+     *         followed by {@link #thinned(File)}
+     */
+    public Result update(File fatJar, File thinJar) throws IOException {
+        computeDigests(fatJar);
+        Properties state = readState();
+        if (!thinJar.isFile() || !thinJar.getCanonicalPath().equals(state.getProperty("thin"))
+                || !String.valueOf(thinJar.length()).equals(state.getProperty("thinLength"))
+                || !String.valueOf(thinJar.lastModified()).equals(state.getProperty("thinModified"))
+                || !libDigest.equals(state.getProperty("libs"))) {
+            return Result.THIN_REQUIRED;
+        }
+        if (appDigest.equals(state.getProperty("app"))) {
+            log.debug("Thin application " + thinJar.getName() + " is up to date");
+            return Result.UNCHANGED;
+        }
+
+        byte[] libIndex = readEntry(thinJar, LIB_INDEX);
+        if (libIndex == null) {
+            return Result.THIN_REQUIRED;
+        }
+        File temp = new File(thinJar.getParentFile(), "." + thinJar.getName() + ".tmp");
+        try {
+            writeThinJar(fatJar, libIndex, temp);
+            Files.move(temp.toPath(), thinJar.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+        log.debug("Updated the classes of thin application " + thinJar.getName() + ", the libraries are unchanged");
+        thinned(thinJar);
+        return Result.APPLICATION_UPDATED;
+    }
+
+    /**
+     * Record the state after the thin application was written.
+     */
+    public void thinned(File thinJar) throws IOException {
+        thinned(thinJar, null);
+    }
+
+    /**
+     * Record the state after the thin command wrote the thin application.
+     *
+     * @param cachedBefore
+     *            the libraries in the shared cache before the thin command,
+     *            see {@link #getCachedLibraries(File)}. The libraries of the
+     *            thin application that are not among them were added for it.
+     */
+    public void thinned(File thinJar, Set<String> cachedBefore) throws IOException {
+        Set<String> added = getAddedLibraries(readState());
+        if (cachedBefore != null) {
+            byte[] libIndex = readEntry(thinJar, LIB_INDEX);
+            if (libIndex != null) {
+                Set<String> referenced = new HashSet<String>();
+                addHashes(libIndex, referenced);
+                referenced.removeAll(cachedBefore);
+                added.addAll(referenced);
+            }
+        }
+        Properties state = new Properties();
+        state.setProperty("libs", libDigest);
+        state.setProperty("app", appDigest);
+        state.setProperty("thin", thinJar.getCanonicalPath());
+        state.setProperty("thinLength", String.valueOf(thinJar.length()));
+        state.setProperty("thinModified", String.valueOf(thinJar.lastModified()));
+        setAddedLibraries(state, added);
+        writeState(state);
+    }
+
+    /**
+     * @param libIndexCache
+     *            usr/shared/resources/lib.index.cache
+     * @return the hashes of the libraries in the shared cache
+     */
+    public Set<String> getCachedLibraries(File libIndexCache) {
+        Set<String> hashes = new HashSet<String>();
+        File[] prefixes = libIndexCache.listFiles();
+        if (prefixes != null) {
+            // the cache stores each library under the first two and the remaining characters of its hash
+            for (File prefix : prefixes) {
+                String[] suffixes = prefix.list();
+                if (prefix.getName().length() == 2 && suffixes != null) {
+                    for (String suffix : suffixes) {
+                        hashes.add(prefix.getName() + suffix);
+                    }
+                }
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Remove the libraries that were added to the shared cache for this
+     * application and that no application references any more. The
+     * applications in the apps and dropins/spring directories of every server
+     * are checked, together with the configured applications of the server
+     * that may be elsewhere. Nothing is removed if one of them cannot be read.
+     *
+     * @param libIndexCache
+     *            usr/shared/resources/lib.index.cache
+     * @param serversDirectory
+     *            usr/servers
+     * @param configuredApps
+     *            the application locations configured for the server
+     */
+    public void removeUnreferencedLibraries(File libIndexCache, File serversDirectory, Collection<File> configuredApps)
+            throws IOException {
+        Properties state = readState();
+        Set<String> added = getAddedLibraries(state);
+        if (added.isEmpty()) {
+            return;
+        }
+
+        Set<File> apps = new HashSet<File>(configuredApps);
+        File[] servers = serversDirectory.listFiles();
+        if (servers != null) {
+            for (File server : servers) {
+                for (File dir : new File[] { new File(server, "apps"), new File(server, "dropins/spring") }) {
+                    File[] files = dir.listFiles();
+                    if (files != null) {
+                        for (File file : files) {
+                            apps.add(file);
+                        }
+                    }
+                }
+            }
+        }
+        Set<String> referenced = new HashSet<String>();
+        for (File app : apps) {
+            if (!app.isFile() || !isApplicationFile(app)) {
+                continue;
+            }
+            try {
+                byte[] libIndex = app.getName().endsWith(".xml") ? readLooseLibIndex(app) : readEntry(app, LIB_INDEX);
+                if (libIndex != null) {
+                    addHashes(libIndex, referenced);
+                }
+            } catch (IOException e) {
+                // an application that cannot be read may reference any of them
+                log.debug("Unable to read " + app + ", not removing libraries", e);
+                return;
+            }
+        }
+
+        int removed = 0;
+        for (String hash : new TreeSet<String>(added)) {
+            if (referenced.contains(hash)) {
+                continue;
+            }
+            File library = hash.length() > 2 ? new File(new File(libIndexCache, hash.substring(0, 2)), hash.substring(2))
+                    : null;
+            try {
+                if (library != null && library.exists()) {
+                    FileUtils.deleteDirectory(library);
+                    removed++;
+                }
+                added.remove(hash);
+            } catch (IOException e) {
+                log.debug("Unable to remove " + library, e);
+            }
+        }
+        if (removed > 0) {
+            log.debug("Removed " + removed + " unreferenced libraries from " + libIndexCache);
+        }
+        setAddedLibraries(state, added);
+        writeState(state);
+    }
+
+    private boolean isApplicationFile(File file) {
+        String name = file.getName().toLowerCase(Locale.ENGLISH);
+        for (String suffix : APP_SUFFIXES) {
+            if (name.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Set<String> getAddedLibraries(Properties state) {
+        Set<String> added = new TreeSet<String>();
+        String value = state.getProperty("addedLibs");
+        if (value != null) {
+            for (String hash : value.split(",")) {
+                if (!hash.trim().isEmpty()) {
+                    added.add(hash.trim());
+                }
+            }
+        }
+        return added;
+    }
+
+    private void setAddedLibraries(Properties state, Set<String> added) {
+        StringBuilder value = new StringBuilder();
+        for (String hash : new TreeSet<String>(added)) {
+            if (value.length() > 0) {
+                value.append(',');
+            }
+            value.append(hash);
+        }
+        state.setProperty("addedLibs", value.toString());
+    }
+
+    private void computeDigests(File fatJar) throws IOException {
+        DigestUtil libs = new DigestUtil();
+        DigestUtil app = new DigestUtil();
+        ZipFile zip = new ZipFile(fatJar);
+        try {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                (isLibrary(entry.getName()) ? libs : app).update(entry.getName())
+                        .update(Long.toString(entry.getCrc())).update(Long.toString(entry.getSize()));
+            }
+        } finally {
+            zip.close();
+        }
+        libDigest = libs.getValue();
+        appDigest = app.getValue();
+    }
+
+    private boolean isLibrary(String name) {
+        for (String prefix : LIB_PREFIXES) {
+            if (name.startsWith(prefix) && name.endsWith(".jar")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // the uber JAR without its libraries, with the given library index
+    private void writeThinJar(File fatJar, byte[] libIndex, File target) throws IOException {
+        ZipFile zip = new ZipFile(fatJar);
+        try {
+            ZipOutputStream out = new ZipOutputStream(new FileOutputStream(target));
+            try {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                byte[] buffer = new byte[8192];
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (isLibrary(entry.getName()) || LIB_INDEX.equals(entry.getName())) {
+                        continue;
+                    }
+                    ZipEntry copy = new ZipEntry(entry.getName());
+                    copy.setTime(entry.getTime());
+                    out.putNextEntry(copy);
+                    InputStream in = zip.getInputStream(entry);
+                    try {
+                        int read;
+                        while ((read = in.read(buffer)) != -1) {
+                            out.write(buffer, 0, read);
+                        }
+                    } finally {
+                        in.close();
+                    }
+                    out.closeEntry();
+                }
+                out.putNextEntry(new ZipEntry(LIB_INDEX));
+                out.write(libIndex);
+                out.closeEntry();
+            } finally {
+                out.close();
+            }
+        } finally {
+            zip.close();
+        }
+    }
+
+    // the library index of a loose application, see LooseSpringBootApplication
+    private byte[] readLooseLibIndex(File looseConfigFile) throws IOException {
+        NodeList files;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            files = factory.newDocumentBuilder().parse(looseConfigFile).getElementsByTagName("file");
+        } catch (Exception e) {
+            throw new IOException("Unable to parse " + looseConfigFile, e);
+        }
+        for (int i = 0; i < files.getLength(); i++) {
+            Element file = (Element) files.item(i);
+            if (("/" + LIB_INDEX).equals(file.getAttribute("targetInArchive"))) {
+                return Files.readAllBytes(new File(file.getAttribute("sourceOnDisk")).toPath());
+            }
+        }
+        return null;
+    }
+
+    private byte[] readEntry(File file, String name) throws IOException {
+        ZipFile zip = new ZipFile(file);
+        try {
+            ZipEntry entry = zip.getEntry(name);
+            if (entry == null) {
+                return null;
+            }
+            InputStream in = zip.getInputStream(entry);
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    bytes.write(buffer, 0, read);
+                }
+                return bytes.toByteArray();
+            } finally {
+                in.close();
+            }
+        } finally {
+            zip.close();
+        }
+    }
+
+    // the lines of a library index are <library path>=<hash>
+    private void addHashes(byte[] libIndex, Set<String> hashes) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(libIndex), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int index = line.lastIndexOf('=');
+            if (index > 0) {
+                hashes.add(line.substring(index + 1).trim());
+            }
+        }
+    }
+
+    private void writeState(Properties state) throws IOException {
+        File parent = stateFile.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        OutputStream out = new FileOutputStream(stateFile);
+        try {
+            state.store(out, "Generated by liberty-maven-plugin");
+        } finally {
+            out.close();
+        }
+    }
+
+    private Properties readState() {
+        Properties state = new Properties();
+        if (stateFile.isFile()) {
+            try {
+                InputStream in = new FileInputStream(stateFile);
+                try {
+                    state.load(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                log.debug("Unable to read " + stateFile, e);
+            }
+        }
+        return state;
+    }
+}
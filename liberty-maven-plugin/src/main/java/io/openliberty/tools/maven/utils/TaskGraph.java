@@ -0,0 +1,237 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Runs a set of named steps on a worker pool. A step starts as soon as all the
+ * steps it depends on have completed. The first failure stops any step that
+ * has not started yet and is rethrown by {@link #execute(int)}.
+ */
+public class TaskGraph {
+
+    /**
+     * A unit of work in the graph.
+     */
+    public interface Step {
+        void run() throws Exception;
+    }
+
+    private class Task implements Runnable {
+        private final String name;
+        private final Step step;
+        private final List<String> dependencies;
+        private final List<Task> dependents = new ArrayList<Task>();
+        private int pending;
+        private long start;
+        private long end;
+
+        Task(String name, Step step, List<String> dependencies) {
+            this.name = name;
+            this.step = step;
+            this.dependencies = dependencies;
+        }
+
+        @Override
+        public void run() {
+            synchronized (TaskGraph.this) {
+                if (failure != null) {
+                    skipped(this);
+                    return;
+                }
+            }
+            start = System.currentTimeMillis();
+            try {
+                log.debug("Starting " + name);
+                step.run();
+                end = System.currentTimeMillis();
+                completed(this);
+            } catch (Throwable e) {
+                end = System.currentTimeMillis();
+                failed(this, e);
+            }
+        }
+    }
+
+    private final Log log;
+    private final Map<String, Task> tasks = new LinkedHashMap<String, Task>();
+    private ExecutorService executor;
+    private int remaining;
+    private Throwable failure;
+    private long graphStart;
+    private long graphEnd;
+    private int threads = 1;
+
+    public TaskGraph(Log log) {
+        this.log = log;
+    }
+
+    /**
+     * Add a step to the graph.
+     *
+     * @param name
+     *            unique name of the step
+     * @param step
+     *            the work to run
+     * @param dependencies
+     *            names of steps that must complete before this one starts. They
+     *            must already be in the graph.
+     */
+    public void addTask(String name, Step step, String... dependencies) {
+        if (tasks.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate task " + name);
+        }
+        for (String dependency : dependencies) {
+            if (!tasks.containsKey(dependency)) {
+                throw new IllegalArgumentException("Task " + name + " depends on unknown task " + dependency);
+            }
+        }
+        tasks.put(name, new Task(name, step, Arrays.asList(dependencies)));
+    }
+
+    /**
+     * Run all steps and wait for them to finish.
+     *
+     * @param threads
+     *            number of worker threads, 1 runs the steps one at a time,
+     *            each step once the steps it depends on have completed
+     * @throws Exception
+     *             the failure of the first step that failed
+     */
+    public void execute(int threads) throws Exception {
+        this.threads = Math.max(1, threads);
+        final AtomicInteger count = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "liberty-task-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        List<Task> ready = new ArrayList<Task>();
+        synchronized (this) {
+            graphStart = System.currentTimeMillis();
+            remaining = tasks.size();
+            for (Task task : tasks.values()) {
+                task.pending = task.dependencies.size();
+                for (String dependency : task.dependencies) {
+                    tasks.get(dependency).dependents.add(task);
+                }
+                if (task.pending == 0) {
+                    ready.add(task);
+                }
+            }
+        }
+        try {
+            for (Task task : ready) {
+                executor.execute(task);
+            }
+            synchronized (this) {
+                while (remaining > 0) {
+                    wait();
+                }
+                graphEnd = System.currentTimeMillis();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        if (failure != null) {
+            if (failure instanceof Exception) {
+                throw (Exception) failure;
+            }
+            throw new RuntimeException(failure);
+        }
+    }
+
+    /**
+     * Log the time each step took and how long the whole graph took, and the
+     * time saved when the steps ran on more than one thread.
+     *
+     * @param title
+     *            title of the summary
+     */
+    public void logTimings(String title) {
+        long total = graphEnd - graphStart;
+        long sequential = 0;
+        StringBuilder sb = new StringBuilder(title + " completed in " + formatMillis(total) + ":");
+        for (Task task : tasks.values()) {
+            long duration = task.end - task.start;
+            sequential += duration;
+            sb.append("\n  ").append(String.format("%-20s", task.name))
+                    .append(String.format("%8s", formatMillis(duration)))
+                    .append("  (started at +").append(formatMillis(task.start - graphStart)).append(")");
+        }
+        if (threads > 1) {
+            sb.append("\n  Time saved by running steps in parallel: ")
+                    .append(formatMillis(Math.max(0, sequential - total)));
+        }
+        log.info(sb.toString());
+    }
+
+    private static String formatMillis(long millis) {
+        return String.format("%.1f s", millis / 1000.0);
+    }
+
+    private synchronized void completed(Task task) {
+        log.debug("Completed " + task.name + " in " + (task.end - task.start) + " ms");
+        remaining--;
+        for (Task dependent : task.dependents) {
+            if (--dependent.pending == 0) {
+                executor.execute(dependent);
+            }
+        }
+        notifyAll();
+    }
+
+    private synchronized void failed(Task task, Throwable e) {
+        log.debug("Failed " + task.name, e);
+        if (failure == null) {
+            failure = e;
+        }
+        remaining--;
+        skipDependents(task);
+        notifyAll();
+    }
+
+    private synchronized void skipped(Task task) {
+        remaining--;
+        skipDependents(task);
+        notifyAll();
+    }
+
+    private void skipDependents(Task task) {
+        for (Task dependent : task.dependents) {
+            if (--dependent.pending == 0) {
+                // run() skips the step because the graph has failed
+                executor.execute(dependent);
+            }
+        }
+    }
+}
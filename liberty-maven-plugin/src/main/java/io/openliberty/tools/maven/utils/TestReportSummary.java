@@ -0,0 +1,171 @@
+/**
+ * (C) Copyright IBM Corporation 2020.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.maven.utils;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.maven.plugin.logging.Log;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Prints a summary of the surefire or failsafe XML reports written by the
+ * last test run, without generating the HTML report.
+ *
+ * Only report files that were written since the previous summary are parsed,
+ * and they are streamed rather than loaded into memory.
+ */
+public class TestReportSummary {
+
+    // lines of each stack trace to print
+    private static final int STACK_TRACE_LINES = 5;
+
+    private final String title;
+    private final Log log;
+    private final Map<String, Long> parsed = new HashMap<String, Long>();
+
+    /**
+     * @param title
+     *            e.g. "Unit tests"
+     * @param log
+     */
+    public TestReportSummary(String title, Log log) {
+        this.title = title;
+        this.log = log;
+    }
+
+    private static class Failure {
+        String test;
+        String type;
+        String message;
+        StringBuilder trace = new StringBuilder();
+    }
+
+    private static class ReportHandler extends DefaultHandler {
+        int tests;
+        int failures;
+        int errors;
+        int skipped;
+        List<Failure> failureList = new ArrayList<Failure>();
+        private String testCase;
+        private Failure current;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if ("testcase".equals(qName)) {
+                tests++;
+                testCase = attributes.getValue("classname") + "." + attributes.getValue("name");
+            } else if (testCase != null && ("failure".equals(qName) || "error".equals(qName))) {
+                if ("failure".equals(qName)) {
+                    failures++;
+                } else {
+                    errors++;
+                }
+                current = new Failure();
+                current.test = testCase;
+                current.type = attributes.getValue("type");
+                current.message = attributes.getValue("message");
+            } else if (testCase != null && "skipped".equals(qName)) {
+                skipped++;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (current != null) {
+                current.trace.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (current != null && ("failure".equals(qName) || "error".equals(qName))) {
+                failureList.add(current);
+                current = null;
+            } else if ("testcase".equals(qName)) {
+                testCase = null;
+            }
+        }
+    }
+
+    /**
+     * Parse the report files written since the previous call and log the
+     * totals and each failure.
+     *
+     * @param reportsDirectory
+     *            the surefire or failsafe reports directory
+     */
+    public void print(File reportsDirectory) {
+        File[] reports = reportsDirectory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith("TEST-") && name.endsWith(".xml");
+            }
+        });
+        if (reports == null || reports.length == 0) {
+            return;
+        }
+
+        ReportHandler handler = new ReportHandler();
+        try {
+            SAXParser parser = SAXParserFactory.newInstance().newSAXParser();
+            for (File report : reports) {
+                Long lastParsed = parsed.get(report.getName());
+                if (lastParsed != null && lastParsed == report.lastModified()) {
+                    continue;
+                }
+                try {
+                    parser.parse(report, handler);
+                    parsed.put(report.getName(), report.lastModified());
+                } catch (Exception e) {
+                    log.debug("Unable to parse test report " + report, e);
+                }
+                parser.reset();
+            }
+        } catch (Exception e) {
+            log.debug("Unable to create an XML parser for the test reports", e);
+            return;
+        }
+        if (handler.tests == 0) {
+            return;
+        }
+
+        String summary = title + ": " + handler.tests + " run, " + handler.failures + " failures, " + handler.errors
+                + " errors, " + handler.skipped + " skipped";
+        if (handler.failureList.isEmpty()) {
+            log.info(summary);
+            return;
+        }
+        StringBuilder sb = new StringBuilder(summary);
+        for (Failure failure : handler.failureList) {
+            sb.append("\n  ").append(failure.test).append(": ");
+            sb.append(failure.message != null ? failure.message : failure.type);
+            String[] lines = failure.trace.toString().trim().split("\\r?\\n");
+            for (int i = 1; i < lines.length && i <= STACK_TRACE_LINES; i++) {
+                sb.append("\n      ").append(lines[i].trim());
+            }
+        }
+        log.error(sb.toString());
+    }
+}